@@ -33,6 +33,10 @@ android {
     kotlinOptions {
         jvmTarget = "1.8"
     }
+    androidResources {
+        //the opening book is memory-mapped straight out of the APK
+        noCompress += "bin"
+    }
 }
 
 dependencies {
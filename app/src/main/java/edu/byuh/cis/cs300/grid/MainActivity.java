@@ -48,30 +48,37 @@ public class MainActivity extends AppCompatActivity {
 
     /**
      * Pauses the music when the activity is paused, such as when the screen is turned off or another
-     * activity is started.
+     * activity is started, stops the AI thinking in the background and saves what it has
+     * learned so far.
      */
     @Override
     public void onPause() {
         super.onPause();
         view.pauseMusic();
+        view.stopPondering();
+        view.saveSearchCache();
     }
 
     /**
      * Resumes the music when the activity is resumed, such as when the screen is turned on or
-     * the user returns to the app from another activity.
+     * the user returns to the app from another activity, and lets the AI think on the
+     * player's time again.
      */
     @Override
     public void onResume() {
         super.onResume();
         view.resumeMusic();
+        view.resumePondering();
     }
 
     /**
-     * Destroys the activity and unloads the music from memory.
+     * Destroys the activity, saves the AI's search cache and unloads the music from memory.
      */
     @Override
     public void onDestroy() {
         super.onDestroy();
+        view.saveSearchCache();
+        view.shutdownStorage();
         //un-load the music from memory
         view.unloadMusic();
     }
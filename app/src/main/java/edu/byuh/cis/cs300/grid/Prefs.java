@@ -19,6 +19,8 @@ import androidx.preference.SwitchPreference;
 
 import java.util.Locale;
 
+import edu.byuh.cis.cs300.grid.logic.Difficulty;
+
 public class Prefs extends AppCompatActivity {
 
     /**
@@ -113,14 +115,49 @@ public class Prefs extends AppCompatActivity {
         return PreferenceManager.getDefaultSharedPreferences(c).getString("THEME_PREF", "Space");
     }
 
+    /**
+     * Retrieves the board size preference setting from shared preferences.
+     *
+     * @param c The context used to access shared preferences.
+     * @return The number of rows and columns on the board, from 3 to 8.
+     */
+    public static int getBoardSizePref(Context c) {
+        String size = PreferenceManager.getDefaultSharedPreferences(c).getString("BOARD_SIZE_PREF", "5");
+        return Integer.parseInt(size);
+    }
+
+    /**
+     * Retrieves the win length preference setting from shared preferences.
+     * The value never exceeds the board size.
+     *
+     * @param c The context used to access shared preferences.
+     * @return How many tokens in a row are needed to win, from 3 to the board size.
+     */
+    public static int getWinLengthPref(Context c) {
+        String length = PreferenceManager.getDefaultSharedPreferences(c).getString("WIN_LENGTH_PREF", "5");
+        return Math.min(Integer.parseInt(length), getBoardSizePref(c));
+    }
+
+    /**
+     * Retrieves the difficulty preference setting from shared preferences.
+     *
+     * @param c The context used to access shared preferences.
+     * @return How strong the computer player should be.
+     */
+    public static Difficulty getDifficultyPref(Context c) {
+        String level = PreferenceManager.getDefaultSharedPreferences(c).getString("DIFFICULTY_PREF", "MEDIUM");
+        return Difficulty.valueOf(level);
+    }
+
     public static class SettingsFragment extends PreferenceFragmentCompat {
         /**
          * Called when the Fragment is created to inflate the preference hierarchy.
          *
-         * Creates a PreferenceScreen with four Preference objects: a SwitchPreference for
+         * Creates a PreferenceScreen with seven Preference objects: a SwitchPreference for
          * enabling/disabling music, a SwitchPreference for enabling/disabling slide sounds,
-         * a ListPreference for setting the game speed, and a ListPreference for setting the
-         * game theme.
+         * a ListPreference for setting the game speed, a ListPreference for setting the
+         * game theme, ListPreferences for the board size and win length, and a
+         * ListPreference for the computer player's difficulty.
          *
          * Also sets up a listener for changes to the theme preference and shows a dialog
          * asking the user to restart the app when the theme preference changes.
@@ -169,6 +206,35 @@ public class Prefs extends AppCompatActivity {
             theme.setDefaultValue("Space");
             screen.addPreference(theme);
 
+            ListPreference boardSize = new ListPreference(context);
+            boardSize.setTitle(R.string.board_size_pref_title);
+            boardSize.setSummary(R.string.board_size_pref_summary);
+            boardSize.setKey("BOARD_SIZE_PREF");
+            String[] sizes = {"3", "4", "5", "6", "7", "8"};
+            boardSize.setEntries(R.array.board_size_entries);
+            boardSize.setEntryValues(sizes);
+            boardSize.setDefaultValue("5");
+            screen.addPreference(boardSize);
+
+            ListPreference winLength = new ListPreference(context);
+            winLength.setTitle(R.string.win_length_pref_title);
+            winLength.setSummary(R.string.win_length_pref_summary);
+            winLength.setKey("WIN_LENGTH_PREF");
+            winLength.setEntries(sizes);
+            winLength.setEntryValues(sizes);
+            winLength.setDefaultValue("5");
+            screen.addPreference(winLength);
+
+            ListPreference difficulty = new ListPreference(context);
+            difficulty.setTitle(R.string.difficulty_pref_title);
+            difficulty.setSummary(R.string.difficulty_pref_summary);
+            difficulty.setKey("DIFFICULTY_PREF");
+            String[] levels = {"EASY", "MEDIUM", "HARD"};
+            difficulty.setEntries(R.array.difficulty_entries);
+            difficulty.setEntryValues(levels);
+            difficulty.setDefaultValue("MEDIUM");
+            screen.addPreference(difficulty);
+
             setPreferenceScreen(screen);
 
             //listen for changes in the theme preference
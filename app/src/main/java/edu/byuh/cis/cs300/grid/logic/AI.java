@@ -8,211 +8,303 @@
 
 package edu.byuh.cis.cs300.grid.logic;
 
-import static edu.byuh.cis.cs300.grid.logic.AI.Check.copyGrid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.List;
+public class AI implements Strategy {
+    public static final int DEFAULT_DEPTH = 6;
+    public static final int DEFAULT_TABLE_MB = 4;
+    //shallower results are quick to find again, so only deeper ones are saved
+    public static final int SAVED_MIN_DEPTH = 4;
+    //16 bytes each, so a saved table stays under half a megabyte
+    public static final int SAVED_MAX_ENTRIES = 1 << 15;
+    //the threat search may take 1/THREAT_BUDGET_SHARE of the time budget
+    private static final int THREAT_BUDGET_SHARE = 4;
+    private ParallelSearch search;
+    private int[] lineWeights = PatternEvaluator.DEFAULT_WEIGHTS;
+    private final ThreatSearch threats = new ThreatSearch();
+    private volatile OpeningBook book;
+    //thinks on the opponent's time, filling the same table as the main search
+    private final Search ponder;
+    private Thread ponderThread;
+    //set when pondering starts a table generation for the next search to continue
+    private boolean pondered;
+    //depth the last full search finished, 0 if none since the depth was set
+    private volatile int reachedDepth;
+    private int depth;
+    //0 means the search always goes to the full depth
+    private long timeBudgetMillis;
 
-public class AI {
-    private static final char NULL = '0';
-    private char[] options = {'1', '2', '3', '4', '5', 'A', 'B', 'C', 'D', 'E'};
+    /**
+     * Creates an AI that searches DEFAULT_DEPTH plies ahead with a
+     * DEFAULT_TABLE_MB transposition table.
+     */
+    public AI() {
+        this(DEFAULT_DEPTH, DEFAULT_TABLE_MB);
+    }
 
     /**
-     * Returns a suggested move based on the current state of the game.
-     * If a winning move is possible, it will be returned.
-     * If no winning move is possible, it will check for a blocking move.
-     * If no blocking move is possible, it will return a random move.
-     * @param grid The current state of the game
-     * @param currentPlayer The player to suggest a move for
-     * @return A suggested move
+     * Creates an AI that searches a given number of plies ahead.
+     * @param depth The search depth, at least 1.
+     * @param tableMegabytes The size of the transposition table, for example 1 to 16.
      */
-    public char getSuggestedMove(Player[][] grid, Player currentPlayer) {
-        Player opponent = GameEngine.otherPlayer(currentPlayer);
+    public AI(int depth, int tableMegabytes) {
+        setDepth(depth);
+        search = new ParallelSearch(new TranspositionTable(tableMegabytes), 1);
+        ponder = new Search(search.getTable());
+    }
 
-        //check for blocking opponent's winning move
-        for (char move : options) {
-            Player[][] newGrid = copyGrid(grid);
-            GameEngine.doOneMove(move, opponent, newGrid);
-            if (GameEngine.checkForWin() == opponent) {
-                return move;
-            }
+    /**
+     * Changes how many threads the search runs on. More threads share one
+     * transposition table and reach greater depths in the same time on
+     * multi-core devices. The table keeps its contents.
+     * @param threads The number of threads, at least 1.
+     */
+    public void setThreads(int threads) {
+        if (threads != search.getThreads()) {
+            search = new ParallelSearch(search.getTable(), threads);
+            search.setLineWeights(lineWeights);
         }
+    }
 
-        //check for winning move
-        for (char move : options) {
-            Player[][] newGrid = copyGrid(grid);
-            GameEngine.doOneMove(move, currentPlayer, newGrid);
-            if (GameEngine.checkForWin() == currentPlayer) {
-                return move;
-            }
-        }
+    /**
+     * Changes the weights the search scores positions with, for example ones
+     * read from a resource with {@link PatternEvaluator#readWeights}.
+     * @param weights The worth of an open line, indexed by its number of tokens.
+     */
+    public void setLineWeights(int[] weights) {
+        stopPondering();
+        lineWeights = weights.clone();
+        search.setLineWeights(lineWeights);
+        ponder.setLineWeights(lineWeights);
+        //scores cached under the old weights would no longer match
+        search.getTable().clear();
+    }
 
-        //if no winning or blocking move is found, return a random move
-        return options[(int) (Math.random() * options.length)];
-    }
-
-    static class Check {
-        private static char[] moves = {'1', '2', '3', '4', '5', 'A', 'B', 'C', 'D', 'E'};
-        private List<Check> children;
-        private int cumulativeScore;
-        private Player currentPlayer;
-        private int currentScore;
-        private char move;
-        private String path;
-
-        /**
-         * Constructs a new Check object that represents a potential move in the game.
-         *
-         * @param grid The current state of the game grid.
-         * @param path The path of moves taken to reach this state.
-         * @param move The current move being evaluated.
-         * @param cumulativeScore The cumulative score up to this point.
-         * @param currentPlayer The player making the current move.
-         * @param depth The depth of the move tree to explore.
-         */
-        public Check(Player[][] grid, String path, char move, int cumulativeScore, Player currentPlayer, int depth) {
-            Player[][] newGrid = copyGrid(grid);
-            this.currentPlayer = currentPlayer;
-            this.move = move;
-            if (move != NULL) {
-                this.path = path + move;
-                GameEngine.doOneMove(move, this.currentPlayer, newGrid);
-                this.currentScore = evaluateGrid(newGrid, this.currentPlayer);
-                this.cumulativeScore = cumulativeScore + this.currentScore;
-            } else {
-                this.path = "";
-                this.cumulativeScore = 0;
-            }
-            if (depth > 0) {
-                this.children = new ArrayList<>();
-                for (char nextMove : moves) {
-                    this.children.add(new Check(newGrid, this.path, nextMove, this.cumulativeScore, GameEngine.otherPlayer(this.currentPlayer), depth - 1));
-                }
-            }
+    /**
+     * Gives the AI precomputed moves for the opening. Positions found in the
+     * book are answered at once, without searching.
+     * @param book The book to play from, or null to always search.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Retrieves how many threads the search runs on.
+     * @return The thread count.
+     */
+    public int getThreads() {
+        return search.getThreads();
+    }
+
+    /**
+     * Changes how far ahead the AI looks. Deeper searches play better but take longer.
+     * @param depth The search depth, at least 1.
+     */
+    public void setDepth(int depth) {
+        this.depth = Math.max(depth, 1);
+        reachedDepth = 0;
+    }
+
+    /**
+     * Sets the depth limit and time budget from a difficulty level. The AI
+     * then deepens its search until either one runs out.
+     * @param difficulty The level to play at.
+     */
+    public void setDifficulty(Difficulty difficulty) {
+        setDepth(difficulty.getMaxDepth());
+        timeBudgetMillis = difficulty.getTimeBudgetMillis();
+    }
+
+    /**
+     * Retrieves how far ahead the AI looks.
+     * @return The search depth in plies.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Retrieves the transposition table, for its hit-rate and fill statistics.
+     * @return The table shared by all of this AI's searches.
+     */
+    public TranspositionTable getTable() {
+        return search.getTable();
+    }
+
+    /**
+     * Starts thinking on the opponent's time. While the opponent, who is to move
+     * in the given position, decides, a background thread searches the position
+     * after each of the opponent's possible replies, one ply deeper at a time,
+     * up to one ply past what the AI's last search reached in its time budget,
+     * and never past the AI's depth. The results go into the AI's
+     * transposition table, so whichever reply is played, the next
+     * {@link #getSuggestedMove} finds much of its work already done. Pondering
+     * starts the table generation that search then continues, so the ponder's
+     * results are not the first entries to be replaced.
+     * @param state The position with the opponent to move.
+     */
+    public synchronized void startPondering(final GameState state) {
+        stopPondering();
+        if (state.getWinner() != Player.BLANK) {
+            return;
         }
+        //clear the stop flag here rather than on the new thread, so a
+        //stopPondering() that comes before the thread gets going is not lost
+        ponder.resume();
+        //start the next move's generation now, so the next search keeps the ponder's results as current
+        search.getTable().newSearch();
+        pondered = true;
+        //deeper than the next search can get to in its own time is wasted
+        final int maxDepth = reachedDepth > 0 ? Math.min(depth, reachedDepth + 1) : depth;
+        final long budget = timeBudgetMillis;
+        ponderThread = new Thread(() -> ponder(state, maxDepth, budget));
+        ponderThread.setPriority(Thread.MIN_PRIORITY);
+        ponderThread.start();
+    }
 
-        /**
-         * Retrieves the score for the current state of the game.
-         * @return The score for the current state of the game.
-         */
-        public int getScore() {
-            return this.currentScore;
+    /**
+     * Stops thinking on the opponent's time, and waits for the background
+     * thread to finish. Does nothing if the AI is not pondering.
+     */
+    public synchronized void stopPondering() {
+        if (ponderThread == null) {
+            return;
         }
+        ponder.stop();
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+    }
+
+    /**
+     * Tells whether the background thread is still thinking.
+     * @return true if pondering has started and not yet finished; false otherwise.
+     */
+    synchronized boolean isPondering() {
+        return ponderThread != null && ponderThread.isAlive();
+    }
+
+    /**
+     * Tells whether pondering has started a table generation since the last
+     * search, and forgets it, so only the first search after pondering continues it.
+     * @return true if the next search should keep the ponder's generation; false otherwise.
+     */
+    private synchronized boolean takePondered() {
+        boolean result = pondered;
+        pondered = false;
+        return result;
+    }
 
-        /**
-         * Creates a deep copy of the given 5x5 grid.
-         * @param grid The grid to be copied.
-         * @return A new 5x5 grid with the same values as the given grid.
-         */
-        static Player[][] copyGrid(Player[][] grid) {
-            Player[][] newGrid = new Player[5][5];
-            for (int i = 0; i < 5; i++) {
-                System.arraycopy(grid[i], 0, newGrid[i], 0, 5);
+    /**
+     * Searches every reply of the opponent to the given depth, then all of
+     * them again one ply deeper, until the depth limit or a stop. The history
+     * table is aged once at the start and then kept, so what one reply
+     * teaches about move order helps the others. A round in which a single
+     * reply took longer than the whole time budget is the last, since the
+     * AI could not search deeper than that on its own turn either.
+     * @param state The position with the opponent to move.
+     * @param maxDepth The deepest search to run on each reply.
+     * @param budgetMillis The AI's time budget per move, or 0 for none.
+     */
+    private void ponder(GameState state, int maxDepth, long budgetMillis) {
+        //play the replies on an engine, so each position keeps the game's history
+        Bitboard geometry = state.getGeometry();
+        GameEngine game = new GameEngine(state);
+        GameState[] positions = new GameState[geometry.getMoves()];
+        for (int i = 0; i < positions.length; i++) {
+            if (game.submitMove(geometry.moveChar(i)) == Player.BLANK) {
+                positions[i] = game.getState();
             }
-            return newGrid;
+            game.unmakeMove();
         }
-
-        /**
-         * Evaluates the given grid and returns a score representing the number of open lines the given player has minus the number of open lines the opponent has.
-         * A higher score indicates more open lines for the given player and fewer open lines for the opponent.
-         * @param grid The 5x5 grid to be evaluated.
-         * @param player The player for whom the score is being calculated.
-         * @return The score for the given player.
-         */
-        private static int evaluateGrid(Player[][] grid, Player player) {
-            int score = 0;
-
-            //evaluate rows, columns, and diagonals for potential wins
-            //count the number of open lines in each direction
-            int openLines = 0;
-            int opponentOpenLines = 0;
-            Player opponent = GameEngine.otherPlayer(player);
-
-            //rows
-            for (int i = 0; i < 5; i++) {
-                boolean isBlank = false;
-                boolean isPlayer = false;
-                boolean isOpponent = false;
-                for (int j = 0; j < 5; j++) {
-                    if (grid[i][j] == Player.BLANK) {
-                        isBlank = true;
-                    } else if (grid[i][j] == player) {
-                        isPlayer = true;
-                    } else if (grid[i][j] == opponent) {
-                        isOpponent = true;
-                    }
-                }
-                if (isBlank && isPlayer && !isOpponent) {
-                    openLines++;
+        boolean aged = false;
+        for (int d = 1; d <= maxDepth; d++) {
+            long slowest = 0;
+            for (GameState position : positions) {
+                if (ponder.isStopped()) {
+                    return;
                 }
-                if (isBlank && isOpponent && !isPlayer) {
-                    opponentOpenLines++;
+                if (position != null) {
+                    long start = System.nanoTime();
+                    ponder.search(position, d, d, 0, !aged);
+                    aged = true;
+                    slowest = Math.max(slowest, System.nanoTime() - start);
                 }
             }
-
-            //columns
-            for (int i = 0; i < 5; i++) {
-                boolean isBlank = false;
-                boolean isPlayer = false;
-                boolean isOpponent = false;
-                for (int j = 0; j < 5; j++) {
-                    if (grid[j][i] == Player.BLANK) {
-                        isBlank = true;
-                    } else if (grid[j][i] == player) {
-                        isPlayer = true;
-                    } else if (grid[j][i] == opponent) {
-                        isOpponent = true;
-                    }
-                }
-                if (isBlank && isPlayer && !isOpponent) {
-                    openLines++;
-                }
-                if (isBlank && isOpponent && !isPlayer) {
-                    opponentOpenLines++;
-                }
+            if (budgetMillis > 0 && slowest > budgetMillis * 1000000) {
+                return;
             }
+        }
+    }
 
-            //diagonals
-            boolean isBlank = false;
-            boolean isPlayer = false;
-            boolean isOpponent = false;
-            for (int i = 0; i < 5; i++) {
-                if (grid[i][i] == Player.BLANK) {
-                    isBlank = true;
-                } else if (grid[i][i] == player) {
-                    isPlayer = true;
-                } else if (grid[i][i] == opponent) {
-                    isOpponent = true;
-                }
-            }
-            if (isBlank && isPlayer && !isOpponent) {
-                openLines++;
-            }
-            if (isBlank && isOpponent && !isPlayer) {
-                opponentOpenLines++;
-            }
+    /**
+     * Saves the deepest results of this AI's searches, so a later game can start
+     * with them through {@link #loadTable(InputStream)}.
+     * @param out The stream to write to. It is not closed.
+     * @return The number of results saved.
+     * @throws IOException If the stream cannot be written.
+     */
+    public int saveTable(OutputStream out) throws IOException {
+        return search.getTable().save(out, SAVED_MIN_DEPTH, SAVED_MAX_ENTRIES, Arrays.hashCode(lineWeights));
+    }
 
-            isBlank = false;
-            isPlayer = false;
-            isOpponent = false;
-            for (int i = 0; i < 5; i++) {
-                if (grid[i][4 - i] == Player.BLANK) {
-                    isBlank = true;
-                } else if (grid[i][4 - i] == player) {
-                    isPlayer = true;
-                } else if (grid[i][4 - i] == opponent) {
-                    isOpponent = true;
-                }
-            }
-            if (isBlank && isPlayer && !isOpponent) {
-                openLines++;
-            }
-            if (isBlank && isOpponent && !isPlayer) {
-                opponentOpenLines++;
-            }
+    /**
+     * Loads results saved by {@link #saveTable(OutputStream)}. Results saved
+     * with other line weights are turned down, so call this after
+     * {@link #setLineWeights(int[])}.
+     * @param in The stream to read. It is not closed.
+     * @return The number of results loaded.
+     * @throws IOException If the stream cannot be read or holds no usable results.
+     */
+    public int loadTable(InputStream in) throws IOException {
+        return search.getTable().load(in, Arrays.hashCode(lineWeights));
+    }
 
-            score = openLines - opponentOpenLines;
-            return score;
+    /**
+     * Returns a suggested move based on the current state of the game.
+     * Any pondering is stopped first. A position in the opening book gets its book move straight away.
+     * Otherwise a threat search looks for a win that can be forced with a series of
+     * threats, within a quarter of the time budget; if there is one, its first
+     * move is played at once. Otherwise the move is chosen by a negamax
+     * alpha-beta search that deepens one ply at a time up to the configured
+     * depth, stopping early if the rest of the difficulty's time budget runs
+     * out. A winning move is always taken, and an opponent's
+     * winning reply is blocked whenever that is possible.
+     * @param state The current state of the game, including the player to suggest a move for
+     * @return A suggested move
+     */
+    @Override
+    public char getSuggestedMove(GameState state) {
+        stopPondering();
+        boolean continuing = takePondered();
+        OpeningBook opening = book;
+        int booked = opening != null ? opening.probe(state) : -1;
+        if (booked >= 0) {
+            return state.getGeometry().moveChar(booked);
+        }
+        //the threat search may use a share of the time budget, the full search the rest
+        long start = System.nanoTime();
+        long threatDeadline = timeBudgetMillis > 0
+                ? start + timeBudgetMillis * 1000000 / THREAT_BUDGET_SHARE : Long.MAX_VALUE;
+        int forced = threats.findForcedWin(state, Math.min(ThreatSearch.DEFAULT_THREATS, depth / 2),
+                ThreatSearch.DEFAULT_NODE_LIMIT, threatDeadline);
+        if (forced >= 0) {
+            return state.getGeometry().moveChar(forced);
+        }
+        long budget = timeBudgetMillis;
+        if (budget > 0) {
+            //at least 1, since 0 would mean no limit
+            budget = Math.max(budget - (System.nanoTime() - start) / 1000000, 1);
         }
+        int move = search.search(state, depth, budget, !continuing);
+        reachedDepth = search.getCompletedDepth();
+        return state.getGeometry().moveChar(move);
     }
-}
\ No newline at end of file
+}
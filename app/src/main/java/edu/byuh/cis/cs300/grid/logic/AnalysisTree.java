@@ -0,0 +1,295 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * A game tree for analysis that is only built as far as it is looked at. A node
+ * gets its children the first time one of them is asked for, and every node
+ * lives in an arena of parallel primitive arrays that is allocated once and
+ * reused by {@link #reset(GameState)}. Exploring a deep line therefore costs a
+ * few array slots per position instead of a tree of objects, and the memory
+ * used never grows past the capacity given to the constructor.
+ *
+ * Nodes are identified by their index in the arena, with the root at 0. Each
+ * node stores the position after its move, its open-line score for the player
+ * who made it, and the sum of those scores along the path. The path itself is
+ * packed into a long, four bits per move, first move lowest.
+ */
+public class AnalysisTree {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    //four bits per move in a long path
+    public static final int MAX_DEPTH = 16;
+    public static final int NONE = -1;
+    private static final int MOVE_BITS = 4;
+    private static final long MOVE_MASK = (1 << MOVE_BITS) - 1;
+    private static final Player[] PLAYERS = Player.values();
+
+    //the node arena: one entry per node in every array
+    private final long[] xs;
+    private final long[] os;
+    private final long[] paths;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] score;
+    private final int[] cumulativeScore;
+    private final byte[] move;
+    private final byte[] mover;
+    private final byte[] winner;
+    private final byte[] depth;
+    private int size;
+
+    private Bitboard geometry;
+    private BitwiseEvaluator evaluator;
+
+    /**
+     * Creates a tree with room for DEFAULT_CAPACITY nodes.
+     */
+    public AnalysisTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a tree with a fixed number of node slots.
+     * @param capacity The largest number of nodes, including the root.
+     */
+    public AnalysisTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        xs = new long[capacity];
+        os = new long[capacity];
+        paths = new long[capacity];
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        score = new int[capacity];
+        cumulativeScore = new int[capacity];
+        move = new byte[capacity];
+        mover = new byte[capacity];
+        winner = new byte[capacity];
+        depth = new byte[capacity];
+    }
+
+    /**
+     * Throws the old tree away and starts a new one at a position.
+     * @param state The position of the root node.
+     * @return The index of the root, which is always 0.
+     */
+    public int reset(GameState state) {
+        if (geometry != state.getGeometry()) {
+            geometry = state.getGeometry();
+            evaluator = new BitwiseEvaluator(geometry);
+        }
+        size = 1;
+        xs[0] = state.getTokens(Player.X);
+        os[0] = state.getTokens(Player.O);
+        paths[0] = 0;
+        parent[0] = NONE;
+        firstChild[0] = NONE;
+        score[0] = 0;
+        cumulativeScore[0] = 0;
+        move[0] = NONE;
+        mover[0] = (byte) GameEngine.otherPlayer(state.getPlayerToMove()).ordinal();
+        winner[0] = (byte) geometry.winner(xs[0], os[0]).ordinal();
+        depth[0] = 0;
+        return 0;
+    }
+
+    /**
+     * Retrieves the number of children a node has once it is expanded. A node
+     * where the game is over, or at MAX_DEPTH, has none.
+     * @param node The node index.
+     * @return The number of children, one per move, or 0.
+     */
+    public int getChildCount(int node) {
+        if (winner[node] != Player.BLANK.ordinal() || depth[node] == MAX_DEPTH) {
+            return 0;
+        }
+        return geometry.getMoves();
+    }
+
+    /**
+     * Retrieves a child of a node, adding all of the node's children to the
+     * arena first if this is the first time one is asked for.
+     * @param node The node index.
+     * @param index Which child, which is also the index of its move.
+     * @return The child's node index, or NONE if the node has no children or
+     *         the arena is full.
+     */
+    public int child(int node, int index) {
+        if (firstChild[node] == NONE && !expand(node)) {
+            return NONE;
+        }
+        return firstChild[node] + index;
+    }
+
+    /**
+     * Adds a child for every move from a node, unless it already has them.
+     * @param node The node index.
+     * @return true if the node has its children; false if it cannot have any
+     *         or there is no room for them.
+     */
+    public boolean expand(int node) {
+        if (firstChild[node] != NONE) {
+            return true;
+        }
+        int n = getChildCount(node);
+        if (n == 0 || size + n > xs.length) {
+            return false;
+        }
+        Player player = mover[node] == Player.X.ordinal() ? Player.O : Player.X;
+        firstChild[node] = size;
+        for (int m = 0; m < n; m++) {
+            int c = size++;
+            long x = xs[node];
+            long o = os[node];
+            long span = geometry.span(m, x | o);
+            x = geometry.slide(x, span, m);
+            o = geometry.slide(o, span, m);
+            if (player == Player.X) {
+                x |= geometry.entry(m);
+            } else {
+                o |= geometry.entry(m);
+            }
+            xs[c] = x;
+            os[c] = o;
+            paths[c] = paths[node] | (long) m << (MOVE_BITS * depth[node]);
+            parent[c] = node;
+            firstChild[c] = NONE;
+            score[c] = evaluator.evaluate(x, o, player);
+            cumulativeScore[c] = cumulativeScore[node] + score[c];
+            move[c] = (byte) m;
+            mover[c] = (byte) player.ordinal();
+            winner[c] = (byte) geometry.winner(x, o, geometry.dirtyLines(m, span)).ordinal();
+            depth[c] = (byte) (depth[node] + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether a node's children are already in the arena.
+     * @param node The node index.
+     * @return true if the node has been expanded; false otherwise.
+     */
+    public boolean isExpanded(int node) {
+        return firstChild[node] != NONE;
+    }
+
+    /**
+     * Retrieves the node a node was reached from.
+     * @param node The node index.
+     * @return The parent's index, or NONE for the root.
+     */
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Retrieves the move that led to a node.
+     * @param node The node index, not the root.
+     * @return The move character.
+     */
+    public char getMove(int node) {
+        return geometry.moveChar(move[node]);
+    }
+
+    /**
+     * Retrieves the player who made the move that led to a node.
+     * @param node The node index.
+     * @return Player.X or Player.O.
+     */
+    public Player getMover(int node) {
+        return mover[node] == Player.X.ordinal() ? Player.X : Player.O;
+    }
+
+    /**
+     * Retrieves the result of the game at a node.
+     * @param node The node index.
+     * @return The winner, Player.TIE, or Player.BLANK if the game goes on.
+     */
+    public Player getWinner(int node) {
+        return PLAYERS[winner[node]];
+    }
+
+    /**
+     * Retrieves the open-line score of a node's position for the player who moved into it.
+     * @param node The node index.
+     * @return The score, 0 for the root.
+     */
+    public int getScore(int node) {
+        return score[node];
+    }
+
+    /**
+     * Retrieves the sum of the scores of every node on the path to a node.
+     * @param node The node index.
+     * @return The cumulative score.
+     */
+    public int getCumulativeScore(int node) {
+        return cumulativeScore[node];
+    }
+
+    /**
+     * Retrieves the cells one player occupies at a node.
+     * @param node The node index.
+     * @param player Player.X or Player.O.
+     * @return The player's token mask.
+     */
+    public long getTokens(int node, Player player) {
+        return player == Player.X ? xs[node] : os[node];
+    }
+
+    /**
+     * Retrieves how many moves a node is below the root.
+     * @param node The node index.
+     * @return The node's depth, 0 for the root.
+     */
+    public int getDepth(int node) {
+        return depth[node];
+    }
+
+    /**
+     * Retrieves the moves from the root to a node, packed four bits per move
+     * with the first move lowest. Use {@link #pathMove(long, int)} to unpack it.
+     * @param node The node index.
+     * @return The packed path; {@link #getDepth(int)} gives its length.
+     */
+    public long getPath(int node) {
+        return paths[node];
+    }
+
+    /**
+     * Unpacks one move of a path.
+     * @param path A path from {@link #getPath(int)}.
+     * @param ply Which move, 0 for the first.
+     * @return The move index.
+     */
+    public static int pathMove(long path, int ply) {
+        return (int) (path >>> (MOVE_BITS * ply) & MOVE_MASK);
+    }
+
+    /**
+     * Spells out the path to a node as move characters, for display.
+     * @param node The node index.
+     * @return The moves from the root, for example "A3C".
+     */
+    public String getPathString(int node) {
+        char[] moves = new char[depth[node]];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = geometry.moveChar(pathMove(paths[node], i));
+        }
+        return new String(moves);
+    }
+
+    /**
+     * Retrieves the number of nodes in the arena.
+     * @return The tree size, including the root.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves the largest number of nodes the arena can hold.
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return xs.length;
+    }
+}
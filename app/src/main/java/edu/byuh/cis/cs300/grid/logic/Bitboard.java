@@ -0,0 +1,426 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Bit-level helpers for one board size. A position is stored as two masks,
+ * one for X and one for O, with cell (row, col) kept at bit row * dim + col.
+ * Boards from 3x3 up to 8x8 fit in a single long per player. Pushes are done
+ * with precomputed line masks and a single shift, so a move costs a handful of
+ * ALU operations and never allocates.
+ *
+ * Moves are numbered 0 to 2 * dim - 1: the first dim indexes are the column
+ * pushes '1', '2', ... (which push down) and the rest are the row pushes
+ * 'A', 'B', ... (which push right).
+ *
+ * Instances are immutable and shared; get one with {@link #of(int, int)}.
+ */
+public final class Bitboard {
+
+    public static final int MIN_DIM = 3;
+    public static final int MAX_DIM = 8;
+    private static final Bitboard[][] CACHE = new Bitboard[MAX_DIM + 1][MAX_DIM + 1];
+
+    /**
+     * The original game: a 5x5 board where a player needs a whole line.
+     */
+    public static final Bitboard STANDARD = of(5, 5);
+
+    private final int dim;
+    private final int winLength;
+    private final int moves;
+    private final int lines;
+    private final long boardMask;
+
+    //cells of the row or column each move pushes into, ordered from the entry cell outward
+    private final long[] line;
+    //distance in bits between two neighbouring cells of each move's line
+    private final int[] step;
+    //the first k cells of each move's line, indexed by span length k
+    private final long[][] span;
+    //set of winning lines (bit i = winLines[i]) touched by each move, indexed by span length
+    private final long[][] dirty;
+
+    //every line long enough to win on: the columns and rows in move order, then the diagonals
+    private final long[] winLines;
+    //distance in bits between two neighbouring cells of each winning line
+    private final int[] winStep;
+    //true when a win needs the whole line, so a single compare is enough
+    private final boolean[] wholeLine;
+
+    //transposed contribution of every possible row, indexed by row * 2^dim + row bits
+    private final long[] transposeRows;
+
+    /**
+     * Returns the shared helper for a board size and win length.
+     * @param dim The number of rows and columns, from MIN_DIM to MAX_DIM.
+     * @param winLength How many tokens in a row win, from 3 to dim.
+     * @return The Bitboard for that configuration.
+     */
+    public static synchronized Bitboard of(int dim, int winLength) {
+        if (dim < MIN_DIM || dim > MAX_DIM || winLength < MIN_DIM || winLength > dim) {
+            throw new IllegalArgumentException("Unsupported board " + dim + "x" + dim + " with " + winLength + " in a row");
+        }
+        if (CACHE[dim][winLength] == null) {
+            CACHE[dim][winLength] = new Bitboard(dim, winLength);
+        }
+        return CACHE[dim][winLength];
+    }
+
+    private Bitboard(int dim, int winLength) {
+        this.dim = dim;
+        this.winLength = winLength;
+        moves = 2 * dim;
+        boardMask = (dim * dim == 64) ? -1L : (1L << (dim * dim)) - 1;
+
+        line = new long[moves];
+        step = new int[moves];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                line[i] |= bit(j, i);
+                line[dim + i] |= bit(i, j);
+            }
+            step[i] = dim;
+            step[dim + i] = 1;
+        }
+
+        //diagonals shorter than the win length can never win, so they are left out
+        int diagonals = 2 * (2 * (dim - winLength) + 1);
+        lines = moves + diagonals;
+        winLines = new long[lines];
+        winStep = new int[lines];
+        wholeLine = new boolean[lines];
+        System.arraycopy(line, 0, winLines, 0, moves);
+        System.arraycopy(step, 0, winStep, 0, moves);
+        int index = moves;
+        for (int offset = winLength - dim; offset <= dim - winLength; offset++) {
+            for (int r = 0; r < dim; r++) {
+                int c = r + offset;
+                if (c >= 0 && c < dim) {
+                    winLines[index] |= bit(r, c);
+                }
+            }
+            winStep[index++] = dim + 1;
+        }
+        for (int sum = winLength - 1; sum <= 2 * dim - 1 - winLength; sum++) {
+            for (int r = 0; r < dim; r++) {
+                int c = sum - r;
+                if (c >= 0 && c < dim) {
+                    winLines[index] |= bit(r, c);
+                }
+            }
+            winStep[index++] = dim - 1;
+        }
+        for (int i = 0; i < lines; i++) {
+            wholeLine[i] = Long.bitCount(winLines[i]) == winLength;
+        }
+
+        transposeRows = new long[dim << dim];
+        for (int r = 0; r < dim; r++) {
+            for (int v = 0; v < (1 << dim); v++) {
+                for (int c = 0; c < dim; c++) {
+                    if ((v & (1 << c)) != 0) {
+                        transposeRows[(r << dim) + v] |= bit(c, r);
+                    }
+                }
+            }
+        }
+
+        span = new long[moves][dim + 1];
+        dirty = new long[moves][dim + 1];
+        for (int m = 0; m < moves; m++) {
+            long touched = 0;
+            for (int k = 1; k <= dim; k++) {
+                touched |= 1L << (Long.numberOfTrailingZeros(line[m]) + (k - 1) * step[m]);
+                span[m][k] = touched;
+                for (int i = 0; i < lines; i++) {
+                    if ((winLines[i] & touched) != 0) {
+                        dirty[m][k] |= 1L << i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of rows (and columns) of the board.
+     * @return The board dimension.
+     */
+    public int getDim() {
+        return dim;
+    }
+
+    /**
+     * Retrieves the number of tokens in a row needed to win.
+     * @return The win length.
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Retrieves the number of different moves, which is one per row and one per column.
+     * @return The number of moves.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Retrieves the number of lines a player can win on.
+     * @return The number of winning lines.
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Retrieves the set of all winning lines, for {@link #winner(long, long, long)}.
+     * @return A bit set with one bit per winning line.
+     */
+    public long getAllLines() {
+        return (lines == 64) ? -1L : (1L << lines) - 1;
+    }
+
+    /**
+     * Retrieves the mask of every cell on the board.
+     * @return A mask with one bit set per cell.
+     */
+    public long getBoardMask() {
+        return boardMask;
+    }
+
+    /**
+     * Returns the mask of a single cell.
+     * @param row The row of the cell, from 0 to dim - 1.
+     * @param col The column of the cell, from 0 to dim - 1.
+     * @return A mask with only the given cell set.
+     */
+    public long bit(int row, int col) {
+        return 1L << (row * dim + col);
+    }
+
+    /**
+     * Converts a move character into its move index.
+     * @param move A column move '1', '2', ... or a row move 'A', 'B', ...
+     * @return The move index, from 0 to getMoves() - 1.
+     */
+    public int moveIndex(char move) {
+        if (move >= '1' && move <= '9') {
+            return move - '1';
+        }
+        return dim + (move - 'A');
+    }
+
+    /**
+     * Converts a move index back into its move character.
+     * @param index The move index, from 0 to getMoves() - 1.
+     * @return The matching column ('1', '2', ...) or row ('A', 'B', ...) character.
+     */
+    public char moveChar(int index) {
+        return index < dim ? (char) ('1' + index) : (char) ('A' + index - dim);
+    }
+
+    /**
+     * Retrieves the mask of the row or column that a move pushes into.
+     * @param move The move index.
+     * @return The cells of the pushed line.
+     */
+    public long line(int move) {
+        return line[move];
+    }
+
+    /**
+     * Retrieves the cell a move drops its new token into.
+     * @param move The move index.
+     * @return A mask with only the entry cell set.
+     */
+    public long entry(int move) {
+        return line[move] & -line[move];
+    }
+
+    /**
+     * Computes the cells a push will touch: everything from the entry cell up to
+     * and including the first blank cell of the line, or the whole line if it is full.
+     * @param move The move index.
+     * @param occupied The mask of all occupied cells.
+     * @return The cells whose contents change when the push is played.
+     */
+    public long span(int move, long occupied) {
+        long cells = line[move];
+        long empty = cells & ~occupied;
+        if (empty == 0) {
+            return cells;
+        }
+        long firstBlank = empty & -empty;
+        return cells & ((firstBlank << 1) - 1);
+    }
+
+    /**
+     * Rebuilds a push's span from its length.
+     * @param move The move index.
+     * @param length The number of cells in the span, from 1 to dim.
+     * @return The first length cells of the move's line.
+     */
+    public long span(int move, int length) {
+        return span[move][length];
+    }
+
+    /**
+     * Slides one player's tokens one cell along the pushed line. The last cell of the
+     * span is overwritten, which is either the blank that absorbs the push or, for a
+     * full line, the token that falls off the edge. The entry cell is left empty.
+     * @param bits One player's tokens.
+     * @param span The span returned by {@link #span(int, long)} for this push.
+     * @param move The move index.
+     * @return The player's tokens after the slide.
+     */
+    public long slide(long bits, long span, int move) {
+        long moved = span ^ Long.highestOneBit(span);
+        return (bits & ~span) | ((bits & moved) << step[move]);
+    }
+
+    /**
+     * Undoes {@link #slide(long, long, int)}: tokens slide back one cell toward the
+     * entry and the last cell of the span is left empty. The new token in the entry
+     * cell is dropped, and a token that fell off the edge has to be put back by the caller.
+     * @param bits One player's tokens after the push.
+     * @param span The span of the push being undone.
+     * @param move The move index.
+     * @return The player's tokens before the push.
+     */
+    public long unslide(long bits, long span, int move) {
+        long moved = span & (span - 1);
+        return (bits & ~span) | ((bits & moved) >>> step[move]);
+    }
+
+    /**
+     * Mirrors a mask across the main diagonal, so cell (row, col) moves to (col, row).
+     * This takes one table lookup per row.
+     * @param bits The mask to transpose.
+     * @return The transposed mask.
+     */
+    public long transpose(long bits) {
+        long result = 0;
+        int rowMask = (1 << dim) - 1;
+        for (int r = 0; r < dim; r++) {
+            result |= transposeRows[(r << dim) + (int) ((bits >>> (r * dim)) & rowMask)];
+        }
+        return result;
+    }
+
+    /**
+     * Maps a move onto the transposed board. Transposing turns every row push into
+     * the column push with the same number, and the other way around.
+     * @param move The move index.
+     * @return The move index that does the same thing on the transposed board.
+     */
+    public int transposeMove(int move) {
+        return move < dim ? move + dim : move - dim;
+    }
+
+    /**
+     * Retrieves the mask of one winning line. Indexes 0 to getMoves() - 1 are the
+     * lines pushed by the matching move, followed by the diagonals.
+     * @param index The line index, from 0 to getLines() - 1.
+     * @return The cells of the line.
+     */
+    public long winLine(int index) {
+        return winLines[index];
+    }
+
+    /**
+     * Retrieves the set of winning lines that a push can change. This is the pushed
+     * line itself plus every line crossing one of the cells in its span.
+     * @param move The move index.
+     * @param span The span returned by {@link #span(int, long)} for this push.
+     * @return A bit set of line indexes, suitable for {@link #winner(long, long, long)}.
+     */
+    public long dirtyLines(int move, long span) {
+        return dirty[move][Long.bitCount(span)];
+    }
+
+    /**
+     * Checks whether a player has enough tokens in a row on one line. When the win
+     * length is shorter than the line, the line is ANDed with shifted copies of
+     * itself, so the cost depends on the win length and not on the board size.
+     * @param bits The player's tokens.
+     * @param index The line index.
+     * @return true if the line holds a winning run; false otherwise.
+     */
+    public boolean hasRun(long bits, int index) {
+        long cells = winLines[index];
+        long mine = bits & cells;
+        if (wholeLine[index]) {
+            return mine == cells;
+        }
+        long run = mine;
+        for (int s = 1; s < winLength && run != 0; s++) {
+            run &= mine >>> (s * winStep[index]);
+        }
+        return run != 0;
+    }
+
+    /**
+     * Checks the board for a winner using the precomputed line table. A winning
+     * diagonal decides the game outright, unless both players have one, which is
+     * a tie. Otherwise one winning row or column wins, and two or more winning rows
+     * or columns (for either player) are a tie. The result does not change when
+     * the board is transposed.
+     * @param x The X mask.
+     * @param o The O mask.
+     * @return Player.X, Player.O, Player.TIE, or Player.BLANK if nobody has won.
+     */
+    public Player winner(long x, long o) {
+        return winner(x, o, getAllLines());
+    }
+
+    /**
+     * Checks only the given lines for a winner, with the same rules as
+     * {@link #winner(long, long)}. If the position before the last push had no
+     * winner, checking the push's {@link #dirtyLines(int, long)} gives the same
+     * answer as checking the whole board.
+     * @param x The X mask.
+     * @param o The O mask.
+     * @param lines A bit set of line indexes to check.
+     * @return Player.X, Player.O, Player.TIE, or Player.BLANK if nobody has won.
+     */
+    public Player winner(long x, long o, long lines) {
+        boolean xDiagonal = false;
+        boolean oDiagonal = false;
+        for (long rest = lines >>> moves; rest != 0; rest &= rest - 1) {
+            int i = moves + Long.numberOfTrailingZeros(rest);
+            xDiagonal |= hasRun(x, i);
+            oDiagonal |= hasRun(o, i);
+        }
+        if (xDiagonal || oDiagonal) {
+            return !oDiagonal ? Player.X : !xDiagonal ? Player.O : Player.TIE;
+        }
+        Player winner = Player.BLANK;
+        for (long rest = lines & ((1L << moves) - 1); rest != 0; rest &= rest - 1) {
+            int i = Long.numberOfTrailingZeros(rest);
+            if (hasRun(x, i)) {
+                winner = (winner == Player.BLANK) ? Player.X : Player.TIE;
+            }
+            if (hasRun(o, i)) {
+                winner = (winner == Player.BLANK) ? Player.O : Player.TIE;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Reads one cell of a board.
+     * @param board The board as {X mask, O mask}.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The player occupying the cell, or Player.BLANK.
+     */
+    public Player cell(long[] board, int row, int col) {
+        long b = bit(row, col);
+        if ((board[0] & b) != 0) {
+            return Player.X;
+        } else if ((board[1] & b) != 0) {
+            return Player.O;
+        }
+        return Player.BLANK;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Counts open lines with mask arithmetic instead of a walk over the cells. A
+ * line is open for a player if it holds one of the player's tokens, none of the
+ * opponent's, and a blank: (line &amp; mine) != 0 &amp;&amp; (line &amp; theirs) == 0
+ * &amp;&amp; (line &amp; ~occupied) != 0. The score is the player's open lines
+ * minus the opponent's, the same as a {@link PatternEvaluator} with every
+ * weight 1. The search uses it whenever its weights are all equal, and
+ * {@link AnalysisTree} scores its nodes with it.
+ *
+ * Rows and columns are done all at once. Every row is a field of dim bits, and
+ * adding the low bits of each field to all ones carries into the field's top bit
+ * exactly when the field is not empty, so one add marks every row with a token
+ * in it. Columns are folded onto the first row with three shifts. The flags of
+ * both players are then combined with and/not and counted with a popcount. The
+ * few diagonals are tested one mask at a time, with the tests turned into 0 or 1
+ * rather than branched on.
+ */
+public final class BitwiseEvaluator {
+
+    private final Bitboard geometry;
+    private final int dim;
+    private final long boardMask;
+    //the top bit of every row, where the row flags end up
+    private final long rowFlags;
+    //every bit of every row except the top one
+    private final long rowLowBits;
+    //the first row, where the column flags end up
+    private final long columnFlags;
+    private final long[] diagonals;
+
+    /**
+     * Builds the masks for a board.
+     * @param geometry The board configuration.
+     */
+    public BitwiseEvaluator(Bitboard geometry) {
+        this.geometry = geometry;
+        dim = geometry.getDim();
+        boardMask = geometry.getBoardMask();
+        long top = 0;
+        long low = 0;
+        long first = 0;
+        for (int i = 0; i < dim; i++) {
+            top |= geometry.bit(i, dim - 1);
+            low |= geometry.line(dim + i) & ~geometry.bit(i, dim - 1);
+            first |= geometry.bit(0, i);
+        }
+        rowFlags = top;
+        rowLowBits = low;
+        columnFlags = first;
+        diagonals = new long[geometry.getLines() - geometry.getMoves()];
+        for (int i = 0; i < diagonals.length; i++) {
+            diagonals[i] = geometry.winLine(geometry.getMoves() + i);
+        }
+    }
+
+    /**
+     * Retrieves the board this evaluator was built for.
+     * @return The board configuration.
+     */
+    public Bitboard getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Scores a position by its open lines.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param player The player the score is for.
+     * @return The player's open lines minus the opponent's.
+     */
+    public int evaluate(long x, long o, Player player) {
+        long blank = ~(x | o) & boardMask;
+        long xRows = rows(x);
+        long oRows = rows(o);
+        long blankRows = rows(blank);
+        long xColumns = columns(x);
+        long oColumns = columns(o);
+        long blankColumns = columns(blank);
+        int score = Long.bitCount(xRows & ~oRows & blankRows) - Long.bitCount(oRows & ~xRows & blankRows)
+                + Long.bitCount(xColumns & ~oColumns & blankColumns) - Long.bitCount(oColumns & ~xColumns & blankColumns);
+        for (long line : diagonals) {
+            int hasX = nonZero(line & x);
+            int hasO = nonZero(line & o);
+            int hasBlank = nonZero(line & blank);
+            score += (hasX & ~hasO & hasBlank) - (hasO & ~hasX & hasBlank);
+        }
+        return player == Player.X ? score : -score;
+    }
+
+    /**
+     * Marks the rows that have at least one bit set.
+     * @param bits Any set of cells.
+     * @return The top bit of every row that is not empty.
+     */
+    private long rows(long bits) {
+        return (((bits & rowLowBits) + rowLowBits) | bits) & rowFlags;
+    }
+
+    /**
+     * Marks the columns that have at least one bit set.
+     * @param bits Any set of cells.
+     * @return The first-row bit of every column that is not empty.
+     */
+    private long columns(long bits) {
+        bits |= bits >>> dim;
+        bits |= bits >>> (2 * dim);
+        bits |= bits >>> (4 * dim);
+        return bits & columnFlags;
+    }
+
+    /**
+     * Turns a mask test into a number without branching.
+     * @param bits Any value.
+     * @return 1 if any bit is set; 0 otherwise.
+     */
+    private static int nonZero(long bits) {
+        return (int) ((bits | -bits) >>> 63);
+    }
+}
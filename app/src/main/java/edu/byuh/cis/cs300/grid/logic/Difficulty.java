@@ -0,0 +1,37 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Enum representing how strong the computer player is.
+ * Each level gives the search a time budget and a depth limit. Within those,
+ * the AI searches one ply deeper at a time, so a faster device reaches a
+ * greater depth in the same time.
+ */
+public enum Difficulty {
+    EASY(150, 2),
+    MEDIUM(400, 6),
+    HARD(1000, 64);
+
+    private final long timeBudgetMillis;
+    private final int maxDepth;
+
+    Difficulty(long timeBudgetMillis, int maxDepth) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Retrieves how long the AI may search for one move.
+     * @return The time budget in milliseconds.
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * Retrieves the deepest search the AI will start at this level.
+     * @return The depth limit in plies.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
@@ -1,107 +1,393 @@
 package edu.byuh.cis.cs300.grid.logic;
 
 import java.util.Arrays;
-import java.util.stream.IntStream;
 
 public class GameEngine {
 
-    private static Player[][] grid;
-    private static final int DIM = 5;
+    //the board as {X mask, O mask}, indexed by Player.ordinal()
+    private final long[] board;
+    //board size and win length, with the masks and tables for them
+    private final Bitboard geometry;
+    //each undo record packs the move index, the span length and the owner of a fallen token
+    private static final int SPAN_SHIFT = 4;
+    private static final int FALLEN_SHIFT = 8;
     private Player currentPlayer;
+    //created on first use, so scratch engines used by the search don't allocate one
     private AI ai;
+    //what suggests moves; null means the AI above
+    private volatile Strategy strategy;
+    private int[] undoStack;
+    private int undoSize;
+    //positions played before the first one on the undo stack, at the start of hashHistory
+    private int historyBase;
+    private int moveNumber;
+    //Zobrist hash of the current position, and of every position since the start of the game;
+    //the hash includes the player to move, so equal hashes mean the same position and turn
+    private long hash;
+    private long[] hashHistory;
+    //the same for the transposed board, but only from the start of the undo stack
+    private long mirrorHash;
+    private long[] mirrorHistory;
+    private int repetitionLimit;
+    //heuristic score of every winning line, and their sum, kept up to date by every move
+    private PatternEvaluator evaluator;
+    private int[] lineScores;
+    private int evaluation;
+    //last published snapshot, safe to hand to other threads
+    private volatile GameState state;
 
     public GameEngine() {
-        grid = new Player[DIM][DIM];
-        clear();
+        this(Bitboard.STANDARD);
+    }
+
+    /**
+     * Creates an engine for a custom board size and win length.
+     * @param geometry The board configuration, from {@link Bitboard#of(int, int)}.
+     */
+    public GameEngine(Bitboard geometry) {
+        this.geometry = geometry;
+        board = new long[2];
+        undoStack = new int[64];
+        hashHistory = new long[undoStack.length + 1];
+        mirrorHistory = new long[undoStack.length + 1];
         currentPlayer = Player.X;
-        ai = new AI();
+        clear();
+    }
+
+    /**
+     * Creates an engine that continues from a snapshot. The new engine has its own
+     * board, so it can be searched or played on without touching the original game.
+     * @param state The position to start from.
+     */
+    public GameEngine(GameState state) {
+        geometry = state.getGeometry();
+        board = new long[] {state.getTokens(Player.X), state.getTokens(Player.O)};
+        undoStack = new int[64];
+        mirrorHistory = new long[undoStack.length + 1];
+        currentPlayer = state.getPlayerToMove();
+        moveNumber = state.getMoveNumber();
+        hash = state.getHash();
+        long[] earlier = state.getHistory();
+        historyBase = earlier.length;
+        hashHistory = new long[historyBase + undoStack.length + 1];
+        System.arraycopy(earlier, 0, hashHistory, 0, historyBase);
+        hashHistory[historyBase] = hash;
+        repetitionLimit = state.getRepetitionLimit();
+        mirrorHash = Symmetry.mirrorHash(geometry, board[0], board[1], currentPlayer);
+        mirrorHistory[0] = mirrorHash;
+        this.state = state;
     }
 
     /**
      * Clears the game board and resets the current player to X.
      */
     public void clear() {
-        IntStream.range(0, DIM).forEach(i -> 
-            IntStream.range(0, DIM).forEach(j -> 
-                grid[i][j] = Player.BLANK
-            )
-        );
+        board[0] = 0;
+        board[1] = 0;
+        undoSize = 0;
+        historyBase = 0;
+        moveNumber = 0;
+        hash = Zobrist.hash(0, 0, currentPlayer);
+        hashHistory[0] = hash;
+        mirrorHash = hash;
+        mirrorHistory[0] = mirrorHash;
+        rescore();
+        publish();
     }
 
     /**
-     * Submit a move to the game engine. The move should be a letter from A to E
-     * or a number from 1 to 5. The letter will place the move in the corresponding
-     * row, and the number will place the move in the corresponding column.
+     * Submit a move to the game engine. The move is a digit from '1' up to the
+     * board size, which places the move in that column, or a letter from 'A'
+     * onward, which places it in that row (see {@link Bitboard#moveChar(int)}).
      * If the location is already occupied, the move will be placed in the first
      * available position in that row or column.
-     * @param move The move to submit. Should be a letter from A to E or a number
-     *             from 1 to 5.
-     */
-    public void submitMove(char move) {
-        if (move >= '1' && move <= '5') {
-            int col = Integer.parseInt("" + move) - 1;
-            Player newVal = currentPlayer;
-            for (int i = 0; i < DIM; i++) {
-                if (grid[i][col] == Player.BLANK) {
-                    grid[i][col] = newVal;
-                    break;
-                } else {
-                    Player tmp = grid[i][col];
-                    grid[i][col] = newVal;
-                    newVal = tmp;
-                }
-            }
-        } else {
-            int row = (int) (move - 'A');
-            Player newVal = currentPlayer;
-            for (int i = 0; i < DIM; i++) {
-                if (grid[row][i] == Player.BLANK) {
-                    grid[row][i] = newVal;
-                    break;
-                } else {
-                    Player tmp = grid[row][i];
-                    grid[row][i] = newVal;
-                    newVal = tmp;
-                }
-            }
+     * Only the lines touched by the push are checked for a winner, which gives
+     * the same result as {@link #checkForWin()} as long as the game was still
+     * in progress before the move.
+     * @param move The move to submit: '1' up to the board size for columns,
+     *             'A' onward for rows.
+     * @return The player that has won after this move, Player.TIE, or
+     *         Player.BLANK if the game goes on.
+     */
+    public Player submitMove(char move) {
+        Player winner = makeMove(move);
+        publish();
+        return winner;
+    }
+
+    /**
+     * Plays a move for the current player and records it on the undo stack, so that
+     * it can be taken back with {@link #unmakeMove()}. The stack is reused between
+     * moves and only grows when a game gets longer than any before it, so walking a
+     * search tree with makeMove/unmakeMove produces no garbage. Unlike
+     * {@link #submitMove(char)}, this does not publish a new {@link GameState}.
+     * @param move The move to play: '1' up to the board size for columns,
+     *             'A' onward for rows, as given by {@link Bitboard#moveChar(int)}.
+     * @return The player that has won after this move, Player.TIE (which includes
+     *         a draw by repetition), or Player.BLANK if the game goes on.
+     */
+    public Player makeMove(char move) {
+        int m = geometry.moveIndex(move);
+        long span = geometry.span(m, board[0] | board[1]);
+        long last = Long.highestOneBit(span);
+        int fallen = (board[0] & last) != 0 ? 1 : (board[1] & last) != 0 ? 2 : 0;
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+            hashHistory = Arrays.copyOf(hashHistory, historyBase + undoStack.length + 1);
+            mirrorHistory = Arrays.copyOf(mirrorHistory, undoStack.length + 1);
+        }
+        undoStack[undoSize++] = m | (Long.bitCount(span) << SPAN_SHIFT) | (fallen << FALLEN_SHIFT);
+
+        long oldX = board[0];
+        long oldO = board[1];
+        board[0] = geometry.slide(board[0], span, m);
+        board[1] = geometry.slide(board[1], span, m);
+        board[currentPlayer.ordinal()] |= geometry.entry(m);
+        currentPlayer = otherPlayer(currentPlayer);
+        moveNumber++;
+        long changedX = oldX ^ board[0];
+        long changedO = oldO ^ board[1];
+        hash ^= Zobrist.cells(changedX, changedO) ^ Zobrist.O_TO_MOVE;
+        hashHistory[historyBase + undoSize] = hash;
+        mirrorHash ^= Zobrist.cells(geometry.transpose(changedX), geometry.transpose(changedO)) ^ Zobrist.O_TO_MOVE;
+        mirrorHistory[undoSize] = mirrorHash;
+
+        long dirty = geometry.dirtyLines(m, span);
+        if (evaluator != null) {
+            rescore(dirty);
         }
-        currentPlayer = (currentPlayer == Player.X) ? Player.O : Player.X;
+        Player winner = geometry.winner(board[0], board[1], dirty);
+        if (winner == Player.BLANK && isRepetition()) {
+            return Player.TIE;
+        }
+        return winner;
     }
 
     /**
-     * Check if there is a winner. A winner is a player that has all of their
-     * marks in a row, column, or diagonal. If there is no winner, return
-     * Player.BLANK.
-     * @return The player that has won, or Player.BLANK if there is no winner.
+     * Takes back the most recent move and publishes the position before it, so
+     * {@link #getState()} reflects the undo.
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public void undoMove() {
+        unmakeMove();
+        publish();
+    }
+
+    /**
+     * Takes back the most recent move, putting back any token that was pushed
+     * off the edge and handing the turn back to the player who made the move.
+     * Like {@link #makeMove(char)}, this does not publish a new
+     * {@link GameState}, so walking a search tree stays cheap; use
+     * {@link #undoMove()} to take back a move of the real game.
+     * @throws IllegalStateException If there is no move to take back.
      */
-    public static Player checkForWin() {
-        Player winner = Player.BLANK;
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        int record = undoStack[--undoSize];
+        int m = record & ((1 << SPAN_SHIFT) - 1);
+        long span = geometry.span(m, (record >>> SPAN_SHIFT) & ((1 << (FALLEN_SHIFT - SPAN_SHIFT)) - 1));
+        int fallen = record >>> FALLEN_SHIFT;
+        board[0] = geometry.unslide(board[0], span, m);
+        board[1] = geometry.unslide(board[1], span, m);
+        if (fallen != 0) {
+            board[fallen - 1] |= Long.highestOneBit(span);
+        }
+        currentPlayer = otherPlayer(currentPlayer);
+        moveNumber--;
+        hash = hashHistory[historyBase + undoSize];
+        mirrorHash = mirrorHistory[undoSize];
+        if (evaluator != null) {
+            rescore(geometry.dirtyLines(m, span));
+        }
+    }
 
-        //check all rows
-        winner = IntStream.range(0, DIM)
-                .mapToObj(i -> grid[i][0] != Player.BLANK && Arrays.stream(grid[i]).allMatch(p -> p == grid[i][0]) ? grid[i][0] : Player.BLANK)
-                .filter(p -> p != Player.BLANK)
-                .reduce(winner, (w, p) -> w == Player.BLANK ? p : Player.TIE);
+    /**
+     * Starts keeping a heuristic score of the position up to date. Every move
+     * and take-back then rescores only the lines the push touched, so
+     * {@link #getEvaluation(Player)} costs nothing however deep the search is.
+     * @param evaluator The evaluator to score lines with, built for this
+     *                  engine's board, or null to stop scoring.
+     */
+    public void setEvaluator(PatternEvaluator evaluator) {
+        this.evaluator = evaluator;
+        lineScores = evaluator == null ? null : new int[geometry.getLines()];
+        rescore();
+    }
 
-        //check all columns
-        winner = IntStream.range(0, DIM)
-                .mapToObj(i -> grid[0][i] != Player.BLANK && IntStream.range(0, DIM).allMatch(j -> grid[j][i] == grid[0][i]) ? grid[0][i] : Player.BLANK)
-                .filter(p -> p != Player.BLANK)
-                .reduce(winner, (w, p) -> w == Player.BLANK ? p : Player.TIE);
+    /**
+     * Retrieves the heuristic score kept up to date since
+     * {@link #setEvaluator(PatternEvaluator)}. It always equals what the
+     * evaluator's {@link PatternEvaluator#evaluate(long, long, Player)} would
+     * return for the current board.
+     * @param player The player the score is for.
+     * @return The score from the player's point of view, or 0 if no evaluator is set.
+     */
+    public int getEvaluation(Player player) {
+        return player == Player.X ? evaluation : -evaluation;
+    }
 
-        //check top-left to bottom-right diagonal
-        if (grid[0][0] != Player.BLANK && IntStream.range(0, 5).allMatch(i -> grid[i][i] == grid[0][0])) {
-            return grid[0][0];
+    /**
+     * Scores every line from scratch.
+     */
+    private void rescore() {
+        evaluation = 0;
+        if (evaluator == null) {
+            return;
         }
+        for (int i = 0; i < lineScores.length; i++) {
+            lineScores[i] = evaluator.lineScore(i, board[0], board[1]);
+            evaluation += lineScores[i];
+        }
+    }
 
-        //check bottom-left to top-right diagonal
-        if (grid[4][0] != Player.BLANK && IntStream.range(0, 5).allMatch(i -> grid[4 - i][i] == grid[4][0])) {
-            return grid[4][0];
+    /**
+     * Rescores the lines a push touched and updates the total by the difference.
+     * @param dirty The touched lines, one bit per line index.
+     */
+    private void rescore(long dirty) {
+        for (; dirty != 0; dirty &= dirty - 1) {
+            int i = Long.numberOfTrailingZeros(dirty);
+            int score = evaluator.lineScore(i, board[0], board[1]);
+            evaluation += score - lineScores[i];
+            lineScores[i] = score;
         }
+    }
+
+    /**
+     * Retrieves the Zobrist hash of the current position, including the side to
+     * move. It is kept up to date by every move, so reading it is free.
+     * @return The 64-bit position hash.
+     */
+    public long getHash() {
+        return hash;
+    }
 
+    /**
+     * Retrieves the hash shared by the current position and its transpose, which
+     * is the key position caches and books should store it under. Like
+     * {@link #getHash()}, it is kept up to date by every move.
+     * @return The canonical 64-bit position hash.
+     */
+    public long getCanonicalHash() {
+        return Symmetry.canonicalHash(hash, mirrorHash);
+    }
+
+    /**
+     * Tells whether the canonical form of the current position is the transposed
+     * board, in which case moves must go through {@link Symmetry#canonicalMove}
+     * on their way into or out of a cache.
+     * @return true if the canonical form is transposed; false otherwise.
+     */
+    public boolean isCanonicalTransposed() {
+        return Symmetry.isTransposed(hash, mirrorHash);
+    }
+
+    /**
+     * Turns the repetition-draw rule on or off. When it is on, the game is a tie
+     * as soon as the same position, with the same player to move, has occurred
+     * the given number of times. The rule is passed on in every snapshot, so
+     * the AI plays by it too.
+     * @param limit How many occurrences make a draw, or 0 to disable the rule.
+     */
+    public void setRepetitionLimit(int limit) {
+        repetitionLimit = limit;
+        publish();
+    }
+
+    /**
+     * Checks whether the current position has now occurred often enough to
+     * trigger the repetition-draw rule.
+     * @return true if the game is drawn by repetition; false otherwise.
+     */
+    private boolean isRepetition() {
+        if (repetitionLimit == 0) {
+            return false;
+        }
+        int count = 1;
+        //the hash includes the player to move, so every earlier position can be
+        //compared, whoever moved in between
+        for (int i = historyBase + undoSize - 1; i >= 0; i--) {
+            if (hashHistory[i] == hash && ++count >= repetitionLimit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the most recently published snapshot of the game. A new snapshot
+     * is published whenever a move is submitted, the board is cleared or the
+     * current player is changed. Snapshots are immutable, so this may be called
+     * from any thread.
+     * @return The current game state.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Publishes a snapshot of the current position for other threads.
+     */
+    private void publish() {
+        int earlier = historyBase + undoSize;
+        state = new GameState(geometry, board[0], board[1], currentPlayer, moveNumber,
+                Arrays.copyOf(hashHistory, earlier), repetitionLimit);
+    }
+
+    /**
+     * Retrieves the board size and win length this engine plays with.
+     * @return The board configuration.
+     */
+    public Bitboard getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Retrieves the cells occupied by one player.
+     * @param player Player.X or Player.O.
+     * @return The player's token mask, one bit per cell.
+     */
+    public long getTokens(Player player) {
+        return board[player.ordinal()];
+    }
+
+    /**
+     * Retrieves the number of moves that can currently be taken back.
+     * @return The number of moves on the undo stack.
+     */
+    public int getMoveCount() {
+        return undoSize;
+    }
+
+    /**
+     * Check if there is a winner. A winner is a player that has all of their
+     * marks in a row, column, or diagonal. If there is no winner, return
+     * Player.BLANK. If the repetition-draw rule is on and the current position
+     * has repeated too often, the game is reported as Player.TIE.
+     * @return The player that has won, or Player.BLANK if there is no winner.
+     */
+    public Player checkForWin() {
+        Player winner = checkForWin(geometry, board);
+        if (winner == Player.BLANK && isRepetition()) {
+            return Player.TIE;
+        }
         return winner;
     }
 
+    /**
+     * Check if there is a winner on the given board. A winner is a player that
+     * has all of their marks in a row, column, or diagonal. If there is no
+     * winner, return Player.BLANK.
+     * @param geometry The board configuration.
+     * @param board The board as {X mask, O mask}.
+     * @return The player that has won, or Player.BLANK if there is no winner.
+     */
+    public static Player checkForWin(Bitboard geometry, long[] board) {
+        return geometry.winner(board[0], board[1]);
+    }
+
     /**
      * Retrieves the current player.
      * 
@@ -118,47 +404,81 @@ public class GameEngine {
      */
     public void setCurrentPlayer(Player player) {
         this.currentPlayer = player;
+        hash = Zobrist.hash(board[0], board[1], player);
+        hashHistory[historyBase + undoSize] = hash;
+        mirrorHash = Symmetry.mirrorHash(geometry, board[0], board[1], player);
+        mirrorHistory[undoSize] = mirrorHash;
+        publish();
     }
 
     /**
-     * Executes a move on the specified grid for the given player.
-     * The move can be a character from '1' to '5' for column placement or 
-     * from 'A' to 'E' for row placement. The player's symbol is placed in 
-     * the first available blank position in the specified row or column.
+     * Executes a move on the specified board for the given player.
+     * The move is a character from '1' up to the board size for column
+     * placement, or from 'A' onward for row placement. The player's token enters at the
+     * top or left edge and pushes the tokens in front of it along, up to
+     * the first blank cell. If the line is full, the last token falls off.
      *
-     * @param move The move to execute, either a character '1'-'5' for column
-     *             or 'A'-'E' for row.
+     * @param geometry The board configuration.
+     * @param move The move to execute: '1' up to the board size for columns,
+     *             'A' onward for rows, as given by {@link Bitboard#moveChar(int)}.
      * @param player The player making the move.
-     * @param grid The grid where the move is to be executed.
-     */
-    public static void doOneMove(char move, Player player, Player[][] grid) {
-        if (move >= '1' && move <= '5') {
-            int col = move - '1';
-            for (int i = 0; i < 5; i++) {
-                if (grid[i][col] == Player.BLANK) {
-                    grid[i][col] = player;
-                    break;
-                }
-            }
-        } else {
-            int row = move - 'A';
-            for (int i = 0; i < 5; i++) {
-                if (grid[row][i] == Player.BLANK) {
-                    grid[row][i] = player;
-                    break;
-                }
-            }
-        }
+     * @param board The board as {X mask, O mask} where the move is to be executed.
+     * @return The winner found on the lines the push touched, Player.TIE, or
+     *         Player.BLANK. Only meaningful if the board had no winner before the move.
+     */
+    public static Player doOneMove(Bitboard geometry, char move, Player player, long[] board) {
+        int m = geometry.moveIndex(move);
+        long span = geometry.span(m, board[0] | board[1]);
+        board[0] = geometry.slide(board[0], span, m);
+        board[1] = geometry.slide(board[1], span, m);
+        board[player.ordinal()] |= geometry.entry(m);
+        return geometry.winner(board[0], board[1], geometry.dirtyLines(m, span));
     }
 
     /**
      * Suggests the next move for the current player based on the current state of the game.
      * Delegates the decision-making to the AI component, which analyzes the grid and the current player.
      * 
-     * @return A character representing the suggested move, either a row ('A'-'E') or column ('1'-'5').
+     * @return A character representing the suggested move, either a row ('A' onward) or a column
+     *         ('1' up to the board size), as given by {@link Bitboard#moveChar(int)}.
      */
     public char suggestNextMove() {
-        return ai.getSuggestedMove(grid, currentPlayer);
+        return suggestNextMove(state);
+    }
+
+    /**
+     * Suggests a move for the player to move in the given snapshot. The AI only reads
+     * the snapshot, so this can run on a background thread while the UI keeps using
+     * the engine.
+     *
+     * @param state The position to analyze.
+     * @return A character representing the suggested move, either a row ('A' onward) or a column
+     *         ('1' up to the board size), as given by {@link Bitboard#moveChar(int)}.
+     */
+    public char suggestNextMove(GameState state) {
+        Strategy chosen = strategy;
+        return (chosen != null ? chosen : getAI()).getSuggestedMove(state);
+    }
+
+    /**
+     * Replaces the move suggester, for example with a {@link MonteCarlo} search
+     * instead of the alpha-beta AI.
+     * @param strategy The strategy to use, or null to go back to the AI.
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Retrieves the AI that suggests moves for this game, so its search depth
+     * and transposition table can be configured and inspected.
+     * @return The engine's AI.
+     */
+    public synchronized AI getAI() {
+        if (ai == null) {
+            ai = new AI();
+        }
+        return ai;
     }
 
     /**
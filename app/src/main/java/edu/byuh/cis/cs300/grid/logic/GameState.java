@@ -0,0 +1,141 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * An immutable snapshot of a game position: both players' token masks, the
+ * player to move and how many moves have been played. A snapshot of a real
+ * game also carries the hashes of the positions before it and the
+ * repetition-draw limit, so an engine continued from it applies the same
+ * rule. GameEngine publishes a
+ * new snapshot after every submitted move, so another thread (such as the AI)
+ * can read a consistent position without locking the engine.
+ */
+public final class GameState {
+
+    private final Bitboard geometry;
+    private final long x;
+    private final long o;
+    private final Player toMove;
+    private final int moveNumber;
+    private final long hash;
+    //hashes of the earlier positions, oldest first, each with its own player to move
+    private final long[] history;
+    private final int repetitionLimit;
+
+    private static final long[] NO_HISTORY = new long[0];
+
+    /**
+     * Creates a snapshot of a position with no history, so no repetition can
+     * be detected from it.
+     * @param geometry The board size and win length.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The player whose turn it is.
+     * @param moveNumber The number of moves played so far.
+     */
+    public GameState(Bitboard geometry, long x, long o, Player toMove, int moveNumber) {
+        this(geometry, x, o, toMove, moveNumber, NO_HISTORY, 0);
+    }
+
+    /**
+     * Creates a snapshot of a position reached in a game.
+     * @param geometry The board size and win length.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The player whose turn it is.
+     * @param moveNumber The number of moves played so far.
+     * @param history The hashes of the positions before this one, oldest
+     *                first. The array is kept, not copied, and must not change.
+     * @param repetitionLimit How many occurrences of a position make a draw,
+     *                        or 0 if the rule is off.
+     */
+    GameState(Bitboard geometry, long x, long o, Player toMove, int moveNumber, long[] history, int repetitionLimit) {
+        this.geometry = geometry;
+        this.x = x;
+        this.o = o;
+        this.toMove = toMove;
+        this.moveNumber = moveNumber;
+        this.hash = Zobrist.hash(x, o, toMove);
+        this.history = history;
+        this.repetitionLimit = repetitionLimit;
+    }
+
+    /**
+     * Retrieves the board size and win length of this position.
+     * @return The board configuration.
+     */
+    public Bitboard getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Retrieves the cells occupied by one player.
+     * @param player Player.X or Player.O.
+     * @return The player's token mask, one bit per cell.
+     */
+    public long getTokens(Player player) {
+        return player == Player.X ? x : o;
+    }
+
+    /**
+     * Retrieves the player whose turn it is in this position.
+     * @return Player.X or Player.O.
+     */
+    public Player getPlayerToMove() {
+        return toMove;
+    }
+
+    /**
+     * Retrieves the number of moves played to reach this position.
+     * @return The move number, starting at 0 for a fresh board.
+     */
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    /**
+     * Retrieves the Zobrist hash of this position, the same value
+     * {@link GameEngine#getHash()} reports for it.
+     * @return The 64-bit position hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Retrieves the hashes of the positions played before this one.
+     * @return The hashes, oldest first. The array must not be changed.
+     */
+    long[] getHistory() {
+        return history;
+    }
+
+    /**
+     * Retrieves the repetition-draw limit of the game this snapshot is from.
+     * @return How many occurrences of a position make a draw, or 0 if the rule is off.
+     */
+    public int getRepetitionLimit() {
+        return repetitionLimit;
+    }
+
+    /**
+     * Checks the whole board for a winner.
+     * @return The player that has won, Player.TIE, or Player.BLANK if the game goes on.
+     */
+    public Player getWinner() {
+        return geometry.winner(x, o);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameState)) {
+            return false;
+        }
+        GameState s = (GameState) other;
+        return geometry == s.geometry && x == s.x && o == s.o && toMove == s.toMove && moveNumber == s.moveNumber;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32)) * 31 + moveNumber;
+    }
+}
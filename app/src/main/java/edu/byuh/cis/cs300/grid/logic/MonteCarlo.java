@@ -0,0 +1,307 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Monte Carlo Tree Search with UCT selection. Instead of scoring positions with
+ * a heuristic, it plays many random games (playouts) from the positions in its
+ * tree and steers towards the moves that win most often, so it needs no
+ * knowledge of the game beyond the rules.
+ *
+ * The tree lives in an arena of parallel primitive arrays that is allocated
+ * once. The children of a node are stored next to each other, so a node only
+ * needs the index of its first child and their count. Playouts work directly on
+ * the two bit masks with a xorshift random number generator, so searching never
+ * allocates.
+ */
+public class MonteCarlo implements Strategy {
+
+    public static final int DEFAULT_CAPACITY = 1 << 17;
+    //the root and all its children on the biggest board, so there is always a move to return
+    public static final int MIN_CAPACITY = 2 * Bitboard.MAX_DIM + 1;
+    //the usual UCT exploration constant, sqrt(2)
+    private static final float EXPLORATION = 1.41421356f;
+    //a playout longer than this many plies per cell is scored as a tie
+    private static final int PLAYOUT_PLIES_PER_CELL = 4;
+    private static final int MAX_TREE_DEPTH = 256;
+
+    //node results, from the point of view of the player who moved into the node
+    private static final byte ONGOING = 0;
+    private static final byte WON = 1;
+    private static final byte LOST = 2;
+    private static final byte TIED = 3;
+
+    //the node arena: one entry per node in every array
+    private final long[] xs;
+    private final long[] os;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final byte[] move;
+    private final byte[] mover;
+    private final byte[] result;
+    private final int[] visits;
+    //sum of the rewards (1 win, 0.5 tie, 0 loss) for the player who moved into the node
+    private final float[] reward;
+    private int size;
+
+    private final MoveList moveList = new MoveList();
+    private final int[] path = new int[MAX_TREE_DEPTH];
+    private long seed = 0x9E3779B97F4A7C15L;
+    private long timeBudgetMillis;
+    private long playouts;
+    private long elapsedNanos;
+
+    /**
+     * Creates an MCTS player that thinks for the given time per move.
+     * @param timeBudgetMillis The time budget in milliseconds.
+     */
+    public MonteCarlo(long timeBudgetMillis) {
+        this(timeBudgetMillis, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an MCTS player with a custom tree size.
+     * @param timeBudgetMillis The time budget in milliseconds.
+     * @param capacity The largest number of tree nodes, at least MIN_CAPACITY.
+     *                 Once the arena is full, the tree stops growing but
+     *                 playouts go on.
+     * @throws IllegalArgumentException If the capacity cannot hold the root
+     *         and its children on the biggest board.
+     */
+    public MonteCarlo(long timeBudgetMillis, int capacity) {
+        if (capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is below " + MIN_CAPACITY);
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+        xs = new long[capacity];
+        os = new long[capacity];
+        firstChild = new int[capacity];
+        childCount = new byte[capacity];
+        move = new byte[capacity];
+        mover = new byte[capacity];
+        result = new byte[capacity];
+        visits = new int[capacity];
+        reward = new float[capacity];
+    }
+
+    /**
+     * Uses the time budget of a difficulty level.
+     * @param difficulty The level to play at.
+     */
+    public void setDifficulty(Difficulty difficulty) {
+        timeBudgetMillis = difficulty.getTimeBudgetMillis();
+    }
+
+    /**
+     * Seeds the random number generator, so that searches limited by playouts
+     * rather than time can be repeated exactly.
+     * @param seed Any value except 0.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed == 0 ? 1 : seed;
+    }
+
+    /**
+     * Returns the most visited move after searching for the time budget.
+     * @param state The current state of the game.
+     * @return A suggested move.
+     */
+    @Override
+    public char getSuggestedMove(GameState state) {
+        return state.getGeometry().moveChar(search(state, timeBudgetMillis, Long.MAX_VALUE));
+    }
+
+    /**
+     * Grows the tree until the time or the playout limit runs out.
+     * @param state The position to search.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @param maxPlayouts The largest number of playouts to run.
+     * @return The index of the most visited move.
+     */
+    public int search(GameState state, long timeBudgetMillis, long maxPlayouts) {
+        Bitboard geometry = state.getGeometry();
+        long start = System.nanoTime();
+        long deadline = timeBudgetMillis > 0 ? start + timeBudgetMillis * 1000000 : Long.MAX_VALUE;
+        size = 1;
+        xs[0] = state.getTokens(Player.X);
+        os[0] = state.getTokens(Player.O);
+        firstChild[0] = -1;
+        mover[0] = (byte) GameEngine.otherPlayer(state.getPlayerToMove()).ordinal();
+        result[0] = ONGOING;
+        visits[0] = 0;
+        reward[0] = 0;
+        expand(geometry, 0);
+
+        playouts = 0;
+        while (playouts < maxPlayouts) {
+            //look at the clock every 64 playouts
+            if ((playouts & 63) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            iterate(geometry);
+            playouts++;
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        int best = firstChild[0];
+        for (int c = firstChild[0]; c < firstChild[0] + childCount[0]; c++) {
+            if (visits[c] > visits[best]) {
+                best = c;
+            }
+        }
+        return move[best];
+    }
+
+    /**
+     * Runs one selection, expansion, playout and backup step.
+     * @param geometry The board configuration.
+     */
+    private void iterate(Bitboard geometry) {
+        int node = 0;
+        int depth = 0;
+        path[depth++] = node;
+        while (firstChild[node] >= 0 && childCount[node] > 0 && result[node] == ONGOING && depth < MAX_TREE_DEPTH) {
+            node = select(node);
+            path[depth++] = node;
+        }
+        if (result[node] == ONGOING && firstChild[node] < 0 && visits[node] > 0 && expand(geometry, node)
+                && depth < MAX_TREE_DEPTH) {
+            node = firstChild[node];
+            path[depth++] = node;
+        }
+
+        int winner;
+        if (result[node] == ONGOING) {
+            winner = playout(geometry, xs[node], os[node], 1 - mover[node]);
+        } else if (result[node] == TIED) {
+            winner = Player.TIE.ordinal();
+        } else {
+            winner = result[node] == WON ? mover[node] : 1 - mover[node];
+        }
+
+        for (int i = 0; i < depth; i++) {
+            int n = path[i];
+            visits[n]++;
+            if (winner == mover[n]) {
+                reward[n] += 1;
+            } else if (winner == Player.TIE.ordinal()) {
+                reward[n] += 0.5f;
+            }
+        }
+    }
+
+    /**
+     * Picks the child with the highest upper confidence bound. Children that
+     * have never been visited come first.
+     * @param node The parent node.
+     * @return The index of the chosen child.
+     */
+    private int select(int node) {
+        float logVisits = (float) Math.log(visits[node]);
+        int best = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int c = firstChild[node]; c < firstChild[node] + childCount[node]; c++) {
+            if (visits[c] == 0) {
+                return c;
+            }
+            float value = reward[c] / visits[c] + EXPLORATION * (float) Math.sqrt(logVisits / visits[c]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds a child for every distinct position reachable from a node.
+     * @param geometry The board configuration.
+     * @param node The node to expand.
+     * @return true if the children were added; false if the arena is full.
+     */
+    private boolean expand(Bitboard geometry, int node) {
+        Player player = mover[node] == Player.X.ordinal() ? Player.O : Player.X;
+        int n = moveList.generate(geometry, xs[node], os[node], player);
+        if (size + n > xs.length) {
+            return false;
+        }
+        firstChild[node] = size;
+        childCount[node] = (byte) n;
+        for (int i = 0; i < n; i++) {
+            int c = size++;
+            xs[c] = moveList.x(i);
+            os[c] = moveList.o(i);
+            firstChild[c] = -1;
+            childCount[c] = 0;
+            move[c] = (byte) moveList.move(i);
+            mover[c] = (byte) player.ordinal();
+            visits[c] = 0;
+            reward[c] = 0;
+            Player winner = geometry.winner(xs[c], os[c], moveList.dirtyLines(i));
+            if (winner == Player.BLANK) {
+                result[c] = ONGOING;
+            } else if (winner == Player.TIE) {
+                result[c] = TIED;
+            } else {
+                result[c] = winner == player ? WON : LOST;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plays random moves until the game ends.
+     * @param geometry The board configuration.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The ordinal of the player to move.
+     * @return The ordinal of the winner, or of Player.TIE.
+     */
+    private int playout(Bitboard geometry, long x, long o, int toMove) {
+        int moves = geometry.getMoves();
+        int limit = PLAYOUT_PLIES_PER_CELL * geometry.getDim() * geometry.getDim();
+        for (int ply = 0; ply < limit; ply++) {
+            //xorshift64
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            int m = (int) ((seed >>> 33) % moves);
+            long span = geometry.span(m, x | o);
+            x = geometry.slide(x, span, m);
+            o = geometry.slide(o, span, m);
+            if (toMove == 0) {
+                x |= geometry.entry(m);
+            } else {
+                o |= geometry.entry(m);
+            }
+            Player winner = geometry.winner(x, o, geometry.dirtyLines(m, span));
+            if (winner != Player.BLANK) {
+                return winner.ordinal();
+            }
+            toMove = 1 - toMove;
+        }
+        return Player.TIE.ordinal();
+    }
+
+    /**
+     * Retrieves the number of playouts the last search ran.
+     * @return The playout count.
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Retrieves the speed of the last search.
+     * @return Playouts per second.
+     */
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Retrieves the number of nodes the last search put in the tree.
+     * @return The tree size.
+     */
+    public int getTreeSize() {
+        return size;
+    }
+}
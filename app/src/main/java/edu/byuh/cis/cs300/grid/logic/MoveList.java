@@ -0,0 +1,129 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * A reusable list of the distinct positions one move away from a given position.
+ * Different pushes often lead to the same board (for example, pushing a token
+ * into a line that is already full of that player's tokens), and searching both
+ * would only repeat the same work. Each entry keeps the first move, in move-index
+ * order, that reaches its position.
+ *
+ * The arrays are allocated once, so generating moves never creates garbage.
+ */
+public class MoveList {
+
+    private final int[] moves = new int[2 * Bitboard.MAX_DIM];
+    private final long[] xs = new long[moves.length];
+    private final long[] os = new long[moves.length];
+    private final long[] dirty = new long[moves.length];
+    private int size;
+
+    /**
+     * Fills the list with every distinct position the player can reach in one move.
+     * @param geometry The board configuration.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param player The player making the move.
+     * @return The number of distinct successor positions.
+     */
+    public int generate(Bitboard geometry, long x, long o, Player player) {
+        size = 0;
+        long occupied = x | o;
+        for (int m = 0; m < geometry.getMoves(); m++) {
+            long span = geometry.span(m, occupied);
+            long newX = geometry.slide(x, span, m);
+            long newO = geometry.slide(o, span, m);
+            if (player == Player.X) {
+                newX |= geometry.entry(m);
+            } else {
+                newO |= geometry.entry(m);
+            }
+            if (indexOf(newX, newO) < 0) {
+                moves[size] = m;
+                xs[size] = newX;
+                os[size] = newO;
+                dirty[size] = geometry.dirtyLines(m, span);
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Finds a position that is already in the list.
+     * @param x The X mask to look for.
+     * @param o The O mask to look for.
+     * @return The position's index, or -1 if it is not in the list.
+     */
+    public int indexOf(long x, long o) {
+        for (int i = 0; i < size; i++) {
+            if (xs[i] == x && os[i] == o) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Exchanges two entries, so a search can try its most promising moves first.
+     * @param i The index of one entry.
+     * @param j The index of the other entry.
+     */
+    public void swap(int i, int j) {
+        int m = moves[i];
+        moves[i] = moves[j];
+        moves[j] = m;
+        long x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        long o = os[i];
+        os[i] = os[j];
+        os[j] = o;
+        long d = dirty[i];
+        dirty[i] = dirty[j];
+        dirty[j] = d;
+    }
+
+    /**
+     * Retrieves the number of positions generated by the last call to generate.
+     * @return The number of distinct successors.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the representative move index of one successor.
+     * @param i The entry index, from 0 to size() - 1.
+     * @return The move index that leads to the successor.
+     */
+    public int move(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Retrieves the X mask of one successor.
+     * @param i The entry index.
+     * @return The cells occupied by X after the move.
+     */
+    public long x(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Retrieves the O mask of one successor.
+     * @param i The entry index.
+     * @return The cells occupied by O after the move.
+     */
+    public long o(int i) {
+        return os[i];
+    }
+
+    /**
+     * Retrieves the winning lines the move to one successor touched.
+     * @param i The entry index.
+     * @return A bit set of line indexes for {@link Bitboard#winner(long, long, long)}.
+     */
+    public long dirtyLines(int i) {
+        return dirty[i];
+    }
+}
@@ -0,0 +1,204 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Precomputed best moves for the first plies of a game, looked up by canonical
+ * position hash. The book is a flat file: a short header, then fixed-size
+ * entries sorted by key. It is read in place, either from a memory-mapped file
+ * or from any other buffer, with a binary search per lookup, so opening a book
+ * costs nothing however many positions it holds.
+ *
+ * Each entry holds the key, the best move in the canonical orientation, and the
+ * depth and score the generator's search gave it. Books are written by
+ * {@link #write(OutputStream, Bitboard, long[], int[], int[], int[])}.
+ */
+public class OpeningBook {
+
+    //"SLBK" in ASCII
+    public static final int MAGIC = 0x534C424B;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    //key, then move, depth and score
+    private static final int ENTRY_BYTES = 12;
+
+    private final ByteBuffer buffer;
+    private final Bitboard geometry;
+    private final int size;
+
+    /**
+     * Opens a book held in a buffer. Entries are read with absolute gets, so the
+     * buffer's position is never changed and lookups may run on any thread.
+     * @param buffer The whole book file, for example a mapped asset.
+     * @throws IOException If the buffer does not hold a book of this version.
+     */
+    public OpeningBook(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        geometry = readHeader(buffer);
+        size = buffer.getInt(12);
+        if (size < 0 || buffer.limit() < HEADER_BYTES + (long) size * ENTRY_BYTES) {
+            throw new IOException("Truncated opening book");
+        }
+    }
+
+    /**
+     * Maps a book file, or a book stored inside a bigger file such as an APK,
+     * into memory. The mapping stays valid after the channel is closed.
+     * @param channel The file to read.
+     * @param offset Where the book starts in the file.
+     * @param length The book's length in bytes.
+     * @return The opened book.
+     * @throws IOException If the file cannot be mapped or is not a book.
+     */
+    public static OpeningBook map(FileChannel channel, long offset, long length) throws IOException {
+        return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * Reads only the header of a book file, so a caller can tell whether the
+     * book is for its board before mapping it.
+     * @param channel The file to read.
+     * @param offset Where the book starts in the file.
+     * @return The board the book was generated for.
+     * @throws IOException If the file cannot be read or is not a book.
+     */
+    public static Bitboard readGeometry(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, offset + header.position()) < 0) {
+                throw new IOException("Not an opening book");
+            }
+        }
+        return readHeader(header);
+    }
+
+    /**
+     * Checks the header at the start of a buffer.
+     * @param buffer The book, or at least its header.
+     * @return The board the book was generated for.
+     * @throws IOException If the header is not that of a book of this version.
+     */
+    private static Bitboard readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported opening book version " + buffer.getInt(4));
+        }
+        int dim = buffer.get(8);
+        int winLength = buffer.get(9);
+        if (dim < Bitboard.MIN_DIM || dim > Bitboard.MAX_DIM || winLength < Bitboard.MIN_DIM || winLength > dim) {
+            throw new IOException("Bad opening book board " + dim + "x" + dim + " with " + winLength + " in a row");
+        }
+        return Bitboard.of(dim, winLength);
+    }
+
+    /**
+     * Retrieves the board the book was generated for.
+     * @return The board configuration.
+     */
+    public Bitboard getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Retrieves the number of positions in the book.
+     * @return The entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the book move for a position.
+     * @param state The position, with the player to move.
+     * @return The index of the book move, or -1 if the position is not in the
+     *         book or is played on a different board.
+     */
+    public int probe(GameState state) {
+        if (state.getGeometry() != geometry) {
+            return -1;
+        }
+        long hash = state.getHash();
+        long mirror = Symmetry.mirrorHash(geometry, state.getTokens(Player.X), state.getTokens(Player.O), state.getPlayerToMove());
+        int entry = find(Symmetry.canonicalHash(hash, mirror));
+        if (entry < 0) {
+            return -1;
+        }
+        int move = buffer.get(HEADER_BYTES + entry * ENTRY_BYTES + 8);
+        return Symmetry.canonicalMove(geometry, move, Symmetry.isTransposed(hash, mirror));
+    }
+
+    /**
+     * Retrieves the search depth a book entry was generated with.
+     * @param state The position.
+     * @return The depth in plies, or 0 if the position is not in the book.
+     */
+    public int getDepth(GameState state) {
+        int entry = state.getGeometry() == geometry ? find(Symmetry.canonicalHash(state)) : -1;
+        return entry < 0 ? 0 : buffer.get(HEADER_BYTES + entry * ENTRY_BYTES + 9);
+    }
+
+    /**
+     * Binary searches the sorted keys.
+     * @param key A canonical position hash.
+     * @return The entry number, or -1 if the key is not in the book.
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes a book. The entries may come in any order; they are sorted by key
+     * on the way out.
+     * @param out The stream to write to. It is not closed.
+     * @param geometry The board the positions were searched on.
+     * @param keys The canonical hash of every position.
+     * @param moves The best move of every position, in its canonical orientation.
+     * @param depths The depth every position was searched to.
+     * @param scores The score of every best move, for the player to move. Scores
+     *               are stored as shorts, so larger ones are clamped.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void write(OutputStream out, Bitboard geometry, long[] keys, int[] moves, int[] depths, int[] scores)
+            throws IOException {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeByte(geometry.getDim());
+        data.writeByte(geometry.getWinLength());
+        data.writeShort(0);
+        data.writeInt(keys.length);
+        for (int i : order) {
+            data.writeLong(keys[i]);
+            data.writeByte(moves[i]);
+            data.writeByte(depths[i]);
+            data.writeShort(Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scores[i])));
+        }
+        data.flush();
+    }
+}
@@ -0,0 +1,146 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Lazy SMP: several threads search the same position at once and share one
+ * {@link TranspositionTable}. The threads do not talk to each other. Each
+ * helper just fills the table with results the main search then finds instead
+ * of searching them itself. Odd-numbered helpers start one ply deeper than the
+ * main search, so the threads spread over different depths rather than all
+ * repeating the same tree.
+ *
+ * The move returned is always the main search's, and the helpers are stopped
+ * as soon as it finishes. With one thread this is the same as a plain
+ * {@link Search}.
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+    //workers[0] is the main search, run on the calling thread
+    private final Search[] workers;
+
+    /**
+     * Creates a parallel search with a shared table.
+     * @param table The table all threads share.
+     * @param threads The number of threads to search with, at least 1.
+     */
+    public ParallelSearch(TranspositionTable table, int threads) {
+        this.table = table;
+        workers = new Search[Math.max(threads, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Search(table);
+        }
+    }
+
+    /**
+     * Retrieves the number of threads the search uses.
+     * @return The thread count, including the calling thread.
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Retrieves the table shared by all threads.
+     * @return The transposition table.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Changes the weights of every thread's leaf evaluation.
+     * @param weights The worth of an open line, indexed by its number of tokens.
+     */
+    public void setLineWeights(int[] weights) {
+        for (Search worker : workers) {
+            worker.setLineWeights(weights);
+        }
+    }
+
+    /**
+     * Searches a position with all threads, deepening one ply at a time as
+     * {@link Search#search(GameState, int, long)} does. Blocks until every
+     * helper thread has finished.
+     * @param state The position to search.
+     * @param maxDepth The deepest search to start, at least 1.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @return The index of the best move.
+     */
+    public int search(GameState state, int maxDepth, long timeBudgetMillis) {
+        return search(state, maxDepth, timeBudgetMillis, true);
+    }
+
+    /**
+     * Searches a position with all threads, optionally in the table's current
+     * generation. A search that follows pondering continues the ponder's
+     * generation, so the ponder's results are not the first to be replaced.
+     * @param state The position to search.
+     * @param maxDepth The deepest search to start, at least 1.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @param newGeneration true to start a new generation as a new search does; false to continue the current one.
+     * @return The index of the best move.
+     */
+    int search(final GameState state, final int maxDepth, final long timeBudgetMillis, boolean newGeneration) {
+        if (newGeneration) {
+            table.newSearch();
+        }
+        Thread[] helpers = new Thread[workers.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final Search worker = workers[i + 1];
+            final int firstDepth = 1 + (i + 1) % 2;
+            worker.resume();
+            helpers[i] = new Thread(() -> worker.search(state, firstDepth, maxDepth, timeBudgetMillis));
+            helpers[i].start();
+        }
+
+        workers[0].resume();
+        int move = workers[0].search(state, 1, maxDepth, timeBudgetMillis);
+
+        for (int i = 1; i < workers.length; i++) {
+            workers[i].stop();
+        }
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return move;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It may be called from any thread.
+     */
+    public void stop() {
+        workers[0].stop();
+    }
+
+    /**
+     * Retrieves the score of the main search's best move.
+     * @return The score for the player to move.
+     */
+    public int getScore() {
+        return workers[0].getScore();
+    }
+
+    /**
+     * Retrieves the deepest iteration the main search finished.
+     * @return The completed depth in plies.
+     */
+    public int getCompletedDepth() {
+        return workers[0].getCompletedDepth();
+    }
+
+    /**
+     * Retrieves the number of positions all threads visited in the last search.
+     * @return The total node count.
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Search worker : workers) {
+            nodes += worker.getNodes();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,202 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * Scores positions with a table lookup per winning line. The cells of a line
+ * are packed into a small index (the X bits of the line, then the O bits above
+ * them), and a precomputed table gives the score of every possible pattern,
+ * so an evaluation is one gather, one lookup and one add per line.
+ *
+ * The table is built from a list of weights: an open line (one with a blank
+ * cell and only one player's tokens) is worth weights[n] to the player who has
+ * n tokens on it, and a line with both players' tokens, or no blank, is worth
+ * nothing. The default weights count every open line as 1, the classic
+ * open-line heuristic. Other weights can be read from a resource with
+ * {@link #readWeights(InputStream)}. When all the weights are equal, the search
+ * scores with a {@link BitwiseEvaluator} instead; see {@link #getUniformWeight()}.
+ */
+public class PatternEvaluator {
+
+    /**
+     * One point per open line, whatever the number of tokens on it.
+     */
+    public static final int[] DEFAULT_WEIGHTS = {0, 1, 1, 1, 1, 1, 1, 1};
+
+    private final Bitboard geometry;
+    private final int[] weights;
+    //bit position of every cell of every winning line, in increasing order
+    private final int[][] cells;
+    //score of every pattern from X's point of view, per line length
+    private final int[][] table;
+
+    /**
+     * Builds the pattern tables for a board.
+     * @param geometry The board configuration.
+     * @param weights The worth of an open line with n tokens, indexed by n.
+     *                Missing entries count as the last one given.
+     */
+    public PatternEvaluator(Bitboard geometry, int[] weights) {
+        this.geometry = geometry;
+        this.weights = weights.clone();
+        cells = new int[geometry.getLines()][];
+        table = new int[geometry.getDim() + 1][];
+        for (int i = 0; i < cells.length; i++) {
+            long line = geometry.winLine(i);
+            int length = Long.bitCount(line);
+            cells[i] = new int[length];
+            int k = 0;
+            for (long rest = line; rest != 0; rest &= rest - 1) {
+                cells[i][k++] = Long.numberOfTrailingZeros(rest);
+            }
+            if (table[length] == null) {
+                table[length] = buildTable(length);
+            }
+        }
+    }
+
+    /**
+     * Reads a weight list: whitespace-separated integers, where everything from
+     * a '#' to the end of its line is a comment.
+     * @param in The stream to read, for example a raw resource. It is not closed.
+     * @return The weights, indexed by the number of tokens on an open line.
+     * @throws IOException If the stream cannot be read or holds no weights.
+     */
+    public static int[] readWeights(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        int[] weights = new int[Bitboard.MAX_DIM];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (count == weights.length) {
+                    weights = Arrays.copyOf(weights, count * 2);
+                }
+                try {
+                    weights[count++] = Integer.parseInt(token);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad weight: " + token, e);
+                }
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No weights found");
+        }
+        return Arrays.copyOf(weights, count);
+    }
+
+    /**
+     * Retrieves the board this evaluator was built for.
+     * @return The board configuration.
+     */
+    public Bitboard getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Retrieves the weights the tables were built from.
+     * @return A copy of the weights.
+     */
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Tells whether every open line is worth the same, however many tokens it
+     * holds. The score is then that weight times the open-line count of a
+     * {@link BitwiseEvaluator}, which is much cheaper to get.
+     * @return The common weight, or 0 if lines are weighted by their tokens.
+     */
+    public int getUniformWeight() {
+        int common = weight(1);
+        //a line with as many tokens as cells is full, and never open
+        for (int tokens = 2; tokens < geometry.getDim(); tokens++) {
+            if (weight(tokens) != common) {
+                return 0;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Packs the cells of one line into a pattern index.
+     * @param line The winning line index.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @return The line's X bits, with its O bits above them.
+     */
+    public int lineIndex(int line, long x, long o) {
+        int[] positions = cells[line];
+        int xs = 0;
+        int os = 0;
+        for (int k = 0; k < positions.length; k++) {
+            xs |= (int) (x >>> positions[k] & 1) << k;
+            os |= (int) (o >>> positions[k] & 1) << k;
+        }
+        return xs | os << positions.length;
+    }
+
+    /**
+     * Looks up the score of one line.
+     * @param line The winning line index.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @return The line's worth to X, negative if it favours O.
+     */
+    public int lineScore(int line, long x, long o) {
+        return table[cells[line].length][lineIndex(line, x, o)];
+    }
+
+    /**
+     * Scores a whole position.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param player The player the score is for.
+     * @return The sum of all line scores from the player's point of view.
+     */
+    public int evaluate(long x, long o, Player player) {
+        int score = 0;
+        for (int i = 0; i < cells.length; i++) {
+            score += table[cells[i].length][lineIndex(i, x, o)];
+        }
+        return player == Player.X ? score : -score;
+    }
+
+    /**
+     * Fills in the score of every pattern of one line length.
+     * @param length The number of cells on the line.
+     * @return The scores from X's point of view, indexed by pattern.
+     */
+    private int[] buildTable(int length) {
+        int full = (1 << length) - 1;
+        int[] scores = new int[1 << (2 * length)];
+        for (int xs = 0; xs <= full; xs++) {
+            for (int os = 0; os <= full; os++) {
+                if ((xs & os) != 0 || (xs | os) == full) {
+                    continue;
+                }
+                if (os == 0 && xs != 0) {
+                    scores[xs | os << length] = weight(Integer.bitCount(xs));
+                } else if (xs == 0 && os != 0) {
+                    scores[xs | os << length] = -weight(Integer.bitCount(os));
+                }
+            }
+        }
+        return scores;
+    }
+
+    private int weight(int tokens) {
+        return weights[Math.min(tokens, weights.length - 1)];
+    }
+}
@@ -0,0 +1,452 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import java.util.Arrays;
+
+/**
+ * Proves the result of a position with depth-first proof-number search
+ * (df-pn). Every node has a proof number, the least number of leaves that
+ * still have to be shown to be wins to prove the attacker wins, and a
+ * disproof number, the same for showing it does not. The search always works
+ * on the most-proving node, which lets it follow narrow forcing lines far
+ * deeper than an alpha-beta search of the same effort.
+ *
+ * A solve runs two proofs: first whether the player to move can force a win,
+ * then whether the opponent can. Neither gives a draw. A position that repeats
+ * one earlier on the same line counts as a draw, as it does under the app's
+ * repetition rule. WIN and LOSS are always exact. A DRAW can be reported wrongly
+ * only in the rare case where a repetition seen on one line is reused through
+ * the node table on another. If the search had to stop at its ply horizon,
+ * the result is UNKNOWN instead.
+ *
+ * Nodes are kept in a fixed-size table keyed by canonical hash. When it fills
+ * up, a garbage collection pass throws away the entries with the least work
+ * below them, which are the cheapest to find again.
+ */
+public class ProofNumberSolver {
+
+    public enum Result {
+        WIN,
+        LOSS,
+        DRAW,
+        UNKNOWN
+    }
+
+    public static final int DEFAULT_TABLE_MB = 16;
+    public static final int DEFAULT_MAX_PLIES = 128;
+    static final int INFINITY = 1 << 30;
+    private static final int BUCKET = 4;
+    //key, proof number, disproof number and work
+    private static final int ENTRY_BYTES = 20;
+    //collect garbage once this share of the table is in use, in eighths
+    private static final int GC_TRIGGER = 7;
+    private static final int MAX_MOVES = 2 * Bitboard.MAX_DIM;
+
+    //the node table
+    private final long[] keys;
+    private final int[] proof;
+    private final int[] disproof;
+    private final int[] work;
+    private final int mask;
+    private int used;
+
+    private final int maxPlies;
+    //one entry per ply of the current line
+    private final long[] pathKeys;
+    private final MoveList[] lists;
+    private final long[][] childKeys;
+    private final int[][] childMoves;
+    //proof and disproof numbers of children that are settled without the table
+    private final int[][] fixedProof;
+    private final int[][] fixedDisproof;
+    private final int[] childCount;
+
+    private GameEngine engine;
+    private Bitboard geometry;
+    private Player attacker;
+    private long nodes;
+    private long nodeLimit;
+    private boolean aborted;
+    private boolean horizonReached;
+    private int bestMove;
+    private int collections;
+
+    /**
+     * Creates a solver with a DEFAULT_TABLE_MB node table and DEFAULT_MAX_PLIES horizon.
+     */
+    public ProofNumberSolver() {
+        this(DEFAULT_TABLE_MB, DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * Creates a solver.
+     * @param megabytes The memory budget of the node table, at least 1.
+     * @param maxPlies How deep a line may go before it is given up on.
+     */
+    public ProofNumberSolver(int megabytes, int maxPlies) {
+        long wanted = Math.max(megabytes, 1) * 1024L * 1024L / ENTRY_BYTES;
+        int size = Integer.highestOneBit((int) Math.min(wanted, 1 << 26));
+        keys = new long[size];
+        proof = new int[size];
+        disproof = new int[size];
+        work = new int[size];
+        mask = size - 1;
+        this.maxPlies = Math.max(maxPlies, 1);
+        pathKeys = new long[this.maxPlies + 1];
+        lists = new MoveList[this.maxPlies + 1];
+        childKeys = new long[this.maxPlies + 1][MAX_MOVES];
+        childMoves = new int[this.maxPlies + 1][MAX_MOVES];
+        fixedProof = new int[this.maxPlies + 1][MAX_MOVES];
+        fixedDisproof = new int[this.maxPlies + 1][MAX_MOVES];
+        childCount = new int[this.maxPlies + 1];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Proves the result of a position for the player to move.
+     * @param state The position to solve.
+     * @param nodeLimit The most nodes to expand in each of the two proofs.
+     * @return WIN or LOSS if one side can force a win, DRAW if neither can, or
+     *         UNKNOWN if the limits were reached first.
+     */
+    public Result solve(GameState state, long nodeLimit) {
+        Player winner = state.getWinner();
+        if (winner != Player.BLANK) {
+            bestMove = -1;
+            return winner == Player.TIE ? Result.DRAW
+                    : winner == state.getPlayerToMove() ? Result.WIN : Result.LOSS;
+        }
+        geometry = state.getGeometry();
+        this.nodeLimit = nodeLimit;
+        nodes = 0;
+        collections = 0;
+        horizonReached = false;
+
+        Player toMove = state.getPlayerToMove();
+        int proved = prove(state, toMove);
+        if (proved == 0) {
+            return Result.WIN;
+        }
+        boolean winDisproved = proved == INFINITY;
+        proved = prove(state, GameEngine.otherPlayer(toMove));
+        bestMove = -1;
+        if (proved == 0) {
+            return Result.LOSS;
+        }
+        if (proved == INFINITY && winDisproved && !horizonReached) {
+            return Result.DRAW;
+        }
+        return Result.UNKNOWN;
+    }
+
+    /**
+     * Retrieves the first move of the win found by the last solve.
+     * @return The move index, or -1 if the last result was not WIN.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Retrieves the number of nodes the last solve expanded.
+     * @return The node count of both proofs.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Retrieves how many garbage collection passes the last solve needed.
+     * @return The number of passes.
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * Retrieves the number of nodes the table can hold.
+     * @return The capacity in entries.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Runs one proof from an empty table.
+     * @param state The position.
+     * @param attacker The player who has to force a win.
+     * @return 0 if proved, INFINITY if disproved, anything else if the node
+     *         limit ran out first.
+     */
+    private int prove(GameState state, Player attacker) {
+        this.attacker = attacker;
+        clear();
+        engine = new GameEngine(state);
+        aborted = false;
+        bestMove = -1;
+        long limit = nodeLimit;
+        nodeLimit = nodes + limit;
+        long root = engine.getCanonicalHash();
+        pathKeys[0] = root;
+        mid(0, root, INFINITY, INFINITY);
+        nodeLimit = limit;
+        int entry = find(root);
+        int pn = entry < 0 ? 1 : proof[entry];
+        if (pn == 0 && attacker == state.getPlayerToMove()) {
+            //the root is an OR node, so one of its children is proved
+            generate(0);
+            for (int i = 0; i < childCount[0]; i++) {
+                if (childProof(0, i) == 0) {
+                    bestMove = childMoves[0][i];
+                    break;
+                }
+            }
+        }
+        return pn;
+    }
+
+    /**
+     * Searches a node until its proof or disproof number reaches its threshold.
+     * The engine must be at the node's position.
+     * @param ply The distance from the root.
+     * @param key The node's canonical hash.
+     * @param proofThreshold Stop once the proof number reaches this.
+     * @param disproofThreshold Stop once the disproof number reaches this.
+     */
+    private void mid(int ply, long key, int proofThreshold, int disproofThreshold) {
+        if (++nodes > nodeLimit) {
+            aborted = true;
+            return;
+        }
+        long startNodes = nodes;
+        boolean orNode = engine.getCurrentPlayer() == attacker;
+        generate(ply);
+        int n = childCount[ply];
+        int pn;
+        int dn;
+        while (true) {
+            //the node's numbers, and its most-proving child with the runner-up's number
+            int best = -1;
+            int bestNumber = INFINITY + 1;
+            int secondNumber = INFINITY;
+            int minimum = INFINITY;
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                int cpn = childProof(ply, i);
+                int cdn = childDisproof(ply, i);
+                int chosen = orNode ? cpn : cdn;
+                sum += orNode ? cdn : cpn;
+                minimum = Math.min(minimum, chosen);
+                if (chosen < bestNumber) {
+                    secondNumber = bestNumber;
+                    bestNumber = chosen;
+                    best = i;
+                } else if (chosen < secondNumber) {
+                    secondNumber = chosen;
+                }
+            }
+            int total = (int) Math.min(sum, INFINITY);
+            pn = orNode ? minimum : total;
+            dn = orNode ? total : minimum;
+            if (pn >= proofThreshold || dn >= disproofThreshold || aborted) {
+                break;
+            }
+
+            int childProofThreshold;
+            int childDisproofThreshold;
+            int bestProof = childProof(ply, best);
+            int bestDisproof = childDisproof(ply, best);
+            if (orNode) {
+                childProofThreshold = Math.min(proofThreshold, widen(secondNumber));
+                childDisproofThreshold = (int) Math.min((long) disproofThreshold - dn + bestDisproof, INFINITY);
+            } else {
+                childDisproofThreshold = Math.min(disproofThreshold, widen(secondNumber));
+                childProofThreshold = (int) Math.min((long) proofThreshold - pn + bestProof, INFINITY);
+            }
+            long childKey = childKeys[ply][best];
+            engine.makeMove(geometry.moveChar(childMoves[ply][best]));
+            pathKeys[ply + 1] = childKey;
+            mid(ply + 1, childKey, childProofThreshold, childDisproofThreshold);
+            engine.unmakeMove();
+        }
+        store(key, pn, dn, nodes - startNodes);
+    }
+
+    /**
+     * Turns the runner-up's number into the threshold for the best child. Plain
+     * df-pn uses the runner-up's number plus one, which makes the search switch
+     * back and forth between close siblings, each switch possibly redoing work
+     * the table has since forgotten. Letting the best child go a quarter further
+     * (the "1 + epsilon" trick) switches far less often.
+     * @param second The runner-up's proof or disproof number.
+     * @return The threshold.
+     */
+    private static int widen(int second) {
+        return (int) Math.min(second + (second >> 2) + 1L, INFINITY);
+    }
+
+    /**
+     * Lists the children of the node at a ply. Children that end the game,
+     * repeat a position of the current line, or lie beyond the horizon get
+     * fixed numbers; the others are looked up in the table.
+     * @param ply The node's distance from the root.
+     */
+    private void generate(int ply) {
+        MoveList list = lists[ply];
+        Player mover = engine.getCurrentPlayer();
+        int n = list.generate(geometry, engine.getTokens(Player.X), engine.getTokens(Player.O), mover);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            Player winner = engine.makeMove(geometry.moveChar(list.move(i)));
+            long key = engine.getCanonicalHash();
+            engine.unmakeMove();
+            boolean duplicate = false;
+            for (int j = 0; j < count && !duplicate; j++) {
+                duplicate = childKeys[ply][j] == key;
+            }
+            if (duplicate) {
+                //a transposed copy of a position already listed
+                continue;
+            }
+            childKeys[ply][count] = key;
+            childMoves[ply][count] = list.move(i);
+            int pn = -1;
+            int dn = -1;
+            if (winner == attacker) {
+                pn = 0;
+                dn = INFINITY;
+            } else if (winner != Player.BLANK || repeats(key, ply)) {
+                pn = INFINITY;
+                dn = 0;
+            } else if (ply + 1 >= maxPlies) {
+                horizonReached = true;
+                pn = INFINITY;
+                dn = 0;
+            }
+            fixedProof[ply][count] = pn;
+            fixedDisproof[ply][count] = dn;
+            count++;
+        }
+        childCount[ply] = count;
+    }
+
+    /**
+     * Checks whether a position already occurred on the current line.
+     * @param key The position's canonical hash, which includes the player to move.
+     * @param ply The ply of the node the position is a child of.
+     * @return true if the position repeats; false otherwise.
+     */
+    private boolean repeats(long key, int ply) {
+        for (int i = ply - 1; i >= 0; i -= 2) {
+            if (pathKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int childProof(int ply, int i) {
+        int pn = fixedProof[ply][i];
+        if (pn >= 0) {
+            return pn;
+        }
+        int entry = find(childKeys[ply][i]);
+        return entry < 0 ? 1 : proof[entry];
+    }
+
+    private int childDisproof(int ply, int i) {
+        int dn = fixedDisproof[ply][i];
+        if (dn >= 0) {
+            return dn;
+        }
+        int entry = find(childKeys[ply][i]);
+        return entry < 0 ? 1 : disproof[entry];
+    }
+
+    /**
+     * Finds a node in the table.
+     * @param key The node's canonical hash.
+     * @return The slot, or -1 if the node is not stored.
+     */
+    private int find(long key) {
+        int home = (int) key & mask;
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = (home + i) & mask;
+            if (work[slot] != 0 && keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a node. If its bucket is full, the entry with the least work is
+     * replaced, and once the table as a whole fills up, it is collected.
+     * @param key The node's canonical hash.
+     * @param pn The proof number.
+     * @param dn The disproof number.
+     * @param nodesBelow The work spent on the node in this visit.
+     */
+    private void store(long key, int pn, int dn, long nodesBelow) {
+        int home = (int) key & mask;
+        int victim = -1;
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = (home + i) & mask;
+            if (work[slot] == 0 || keys[slot] == key) {
+                victim = slot;
+                break;
+            }
+            if (victim < 0 || work[slot] < work[victim]) {
+                victim = slot;
+            }
+        }
+        long total = nodesBelow;
+        if (work[victim] == 0) {
+            used++;
+        } else if (keys[victim] == key) {
+            total += work[victim];
+        }
+        keys[victim] = key;
+        proof[victim] = pn;
+        disproof[victim] = dn;
+        work[victim] = (int) Math.max(1, Math.min(total, Integer.MAX_VALUE));
+        if (used * 8L > (long) GC_TRIGGER * (mask + 1)) {
+            collectGarbage();
+        }
+    }
+
+    /**
+     * Frees at least half of the table by dropping the entries with the least
+     * work below them. Work is grouped by powers of two, and whole groups are
+     * dropped, smallest first.
+     */
+    private void collectGarbage() {
+        int[] atSize = new int[32];
+        for (int slot = 0; slot <= mask; slot++) {
+            if (work[slot] != 0) {
+                atSize[31 - Integer.numberOfLeadingZeros(work[slot])]++;
+            }
+        }
+        int cutoff = 0;
+        int dropped = atSize[0];
+        while (dropped * 2 < used && cutoff < 31) {
+            dropped += atSize[++cutoff];
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            if (work[slot] != 0 && 31 - Integer.numberOfLeadingZeros(work[slot]) <= cutoff) {
+                work[slot] = 0;
+                used--;
+            }
+        }
+        collections++;
+    }
+
+    /**
+     * Empties the node table.
+     */
+    private void clear() {
+        Arrays.fill(work, 0);
+        used = 0;
+    }
+}
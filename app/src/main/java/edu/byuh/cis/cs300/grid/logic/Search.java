@@ -0,0 +1,585 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Negamax search with alpha-beta pruning. The search plays moves on its own
+ * scratch GameEngine with makeMove/unmakeMove, so it never touches the real
+ * game and never allocates while it runs. Positions at the depth limit are
+ * scored line by line with a {@link PatternEvaluator}, unless a win is in the air: a player who can win at once is scored as
+ * winning, and a player facing such a threat must answer it, so the search
+ * goes on (for up to QUIESCENCE_PLIES) until the position is quiet. This
+ * keeps the search from misjudging a position just past its horizon.
+ *
+ * Scores are always from the point of view of the player to move. A won game
+ * scores close to WIN, minus the number of plies it took, so the search
+ * prefers quick wins and slow losses.
+ *
+ * With a {@link TranspositionTable}, every searched position is stored under
+ * its canonical hash (see {@link Symmetry}), so a position reached again by
+ * another move order, or its transpose, is not searched twice. The stored best
+ * move is tried first the next time the position comes up.
+ *
+ * Moves are tried in order of promise: the table's best move, then moves that
+ * win at once, then moves that block an opponent's immediate win, then the
+ * killer moves of the ply (recent moves that caused a cutoff at that distance
+ * from the root), then the rest by their history score (how often and how
+ * deep each move has caused cutoffs). Good moves first means more cutoffs.
+ *
+ * The search deepens one ply at a time. Given a time budget, it stops when the
+ * budget runs out and returns the best move of the last depth it finished, so
+ * it always has a move ready and uses whatever time it is given.
+ */
+public class Search {
+
+    public static final int WIN = 1000000;
+    private static final int INFINITY = WIN + 1;
+    //scores further than this from zero are wins, counted in plies from the root
+    private static final int WIN_BOUND = WIN - 1000;
+    //how often, in nodes, the search looks at the clock
+    private static final int CLOCK_INTERVAL = 1024;
+    //move ordering priorities, above any history score
+    private static final int ORDER_TABLE = 1 << 30;
+    private static final int ORDER_WIN = 1 << 29;
+    private static final int ORDER_BLOCK = 1 << 28;
+    private static final int ORDER_KILLER = 1 << 27;
+    private static final int MAX_MOVES = 2 * Bitboard.MAX_DIM;
+    //the most plies of threat answers searched past the depth limit
+    public static final int QUIESCENCE_PLIES = 4;
+
+    //may be null, in which case nothing is cached
+    private final TranspositionTable table;
+
+    //one successor list per ply, reused across searches
+    private MoveList[] lists = new MoveList[0];
+    //the opponent's replies, to find the moves that need blocking, per ply
+    private MoveList[] replies = new MoveList[0];
+    //ordering key of every entry of lists[ply]
+    private int[][] orderKeys = new int[0][];
+    //two killer moves per ply, newest first
+    private int[][] killers = new int[0][];
+    //cutoff counts weighted by depth, per player and move
+    private final int[][] history = new int[2][MAX_MOVES];
+    private boolean ordering = true;
+    private boolean quiescence = true;
+    //weights for the leaf evaluation, and the tables built from them for the current board
+    private int[] lineWeights = PatternEvaluator.DEFAULT_WEIGHTS;
+    private PatternEvaluator evaluator;
+    //used instead of the pattern tables when every open line is worth the same
+    private BitwiseEvaluator bitwise;
+    private int uniformWeight;
+    private GameEngine engine;
+    private Bitboard geometry;
+    private int bestMove;
+    private int bestScore;
+    private long nodes;
+    //best root move of the iteration in progress
+    private int rootMove;
+    private int completedDepth;
+    //System.nanoTime() after which the search gives up, and whether it has
+    private long deadline;
+    private boolean aborted;
+    //set from another thread to end the search early
+    private volatile boolean stopRequested;
+
+    /**
+     * Creates a search without a transposition table.
+     */
+    public Search() {
+        this(null);
+    }
+
+    /**
+     * Creates a search that caches its results in a table. The table keeps its
+     * contents between searches, so later moves of the same game start warm.
+     * @param table The table to use, or null for none.
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Retrieves the transposition table this search uses.
+     * @return The table, or null.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Searches a position to a fixed depth and remembers the best move found.
+     * @param state The position to search.
+     * @param depth How many plies to look ahead, at least 1.
+     * @return The index of the best move.
+     */
+    public int search(GameState state, int depth) {
+        return search(state, depth, 0);
+    }
+
+    /**
+     * Searches a position one ply deeper at a time, until the depth limit is
+     * reached, a forced result is found or the time budget runs out. The first
+     * ply is always searched in full, however short the budget.
+     * @param state The position to search.
+     * @param maxDepth The deepest search to start, at least 1.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @return The index of the best move of the last completed depth.
+     */
+    public int search(GameState state, int maxDepth, long timeBudgetMillis) {
+        if (table != null) {
+            table.newSearch();
+        }
+        stopRequested = false;
+        return search(state, 1, maxDepth, timeBudgetMillis);
+    }
+
+    /**
+     * Runs the iterative deepening loop from a given first depth. This is the
+     * part {@link ParallelSearch} shares between its workers, so it leaves the
+     * table's generation alone, and it does not clear an earlier {@link #stop()}
+     * (the caller does that with {@link #resume()} before starting the thread).
+     * @param state The position to search.
+     * @param firstDepth The first depth to search.
+     * @param maxDepth The deepest search to start.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @return The index of the best move of the last completed depth.
+     */
+    int search(GameState state, int firstDepth, int maxDepth, long timeBudgetMillis) {
+        return search(state, firstDepth, maxDepth, timeBudgetMillis, true);
+    }
+
+    /**
+     * Runs the iterative deepening loop, optionally without first weakening
+     * the history table. Pondering searches many sibling positions one after
+     * another, and what one of them teaches about move order helps the next.
+     * @param state The position to search.
+     * @param firstDepth The first depth to search.
+     * @param maxDepth The deepest search to start.
+     * @param timeBudgetMillis How long to search, or 0 for no limit.
+     * @param ageHistory true to weaken the history as a new search does; false to keep it.
+     * @return The index of the best move of the last completed depth.
+     */
+    int search(GameState state, int firstDepth, int maxDepth, long timeBudgetMillis, boolean ageHistory) {
+        long start = System.nanoTime();
+        deadline = timeBudgetMillis > 0 ? start + timeBudgetMillis * 1000000 : Long.MAX_VALUE;
+        maxDepth = Math.max(maxDepth, 1);
+        engine = new GameEngine(state);
+        geometry = state.getGeometry();
+        if (evaluator == null || evaluator.getGeometry() != geometry) {
+            evaluator = new PatternEvaluator(geometry, lineWeights);
+            uniformWeight = evaluator.getUniformWeight();
+            bitwise = uniformWeight != 0 ? new BitwiseEvaluator(geometry) : null;
+        }
+        //counting open lines at the leaves is cheaper than keeping weighted
+        //line scores up to date on every move
+        if (bitwise == null) {
+            engine.setEvaluator(evaluator);
+        }
+        int plies = maxDepth + QUIESCENCE_PLIES + 1;
+        if (lists.length < plies) {
+            lists = new MoveList[plies];
+            replies = new MoveList[plies];
+            orderKeys = new int[plies][MAX_MOVES];
+            killers = new int[plies][2];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = new MoveList();
+                replies[i] = new MoveList();
+            }
+        }
+        for (int[] k : killers) {
+            k[0] = TranspositionTable.NO_MOVE;
+            k[1] = TranspositionTable.NO_MOVE;
+        }
+        //old history still helps, but the new position should soon outweigh it
+        if (ageHistory) {
+            for (int[] h : history) {
+                for (int m = 0; m < h.length; m++) {
+                    h[m] >>= 2;
+                }
+            }
+        }
+        nodes = 0;
+        bestMove = 0;
+        bestScore = 0;
+        completedDepth = 0;
+        aborted = false;
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            bestMove = rootMove;
+            bestScore = score;
+            completedDepth = depth;
+            //a forced win or loss will not change with more depth
+            if (Math.abs(score) > WIN_BOUND) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Changes the weights of the leaf evaluation. The pattern tables are
+     * rebuilt at the start of the next search.
+     * @param weights The worth of an open line, indexed by its number of tokens.
+     */
+    public void setLineWeights(int[] weights) {
+        lineWeights = weights.clone();
+        evaluator = null;
+    }
+
+    /**
+     * Turns move ordering on or off. Without it, moves are tried in move-index
+     * order (except the table's best move), which is only useful to measure
+     * what ordering gains.
+     * @param ordering true to order moves; false otherwise.
+     */
+    public void setMoveOrdering(boolean ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Turns the threat extension at the depth limit on or off. Without it, the
+     * search is a plain fixed-depth search, which is only useful for testing.
+     * @param quiescence true to extend threats; false otherwise.
+     */
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It may be called from
+     * any thread. The search returns the best move it has completed so far,
+     * or, if no depth was finished, the move the ordering rated most promising,
+     * which is a winning or blocking move whenever there is one.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears an earlier {@link #stop()} request.
+     */
+    void resume() {
+        stopRequested = false;
+    }
+
+    /**
+     * Tells whether {@link #stop()} has been called since the last resume.
+     * @return true if the search has been asked to stop; false otherwise.
+     */
+    boolean isStopped() {
+        return stopRequested;
+    }
+
+    /**
+     * Retrieves the deepest iteration the last search finished.
+     * @return The completed depth in plies.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Retrieves the score of the best move from the last search.
+     * @return The score for the player to move; above WIN - depth means a forced win.
+     */
+    public int getScore() {
+        return bestScore;
+    }
+
+    /**
+     * Retrieves the number of positions the last search visited.
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Scores the current position of the scratch engine.
+     * @param depth The number of plies left to search.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of, negated.
+     * @param ply The distance from the root.
+     * @return The score for the player to move.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (depth == 0) {
+            if (quiescence) {
+                return quiesce(alpha, beta, ply, QUIESCENCE_PLIES);
+            }
+            return countNode() ? 0 : evaluate();
+        }
+        if (countNode()) {
+            return 0;
+        }
+        Player mover = engine.getCurrentPlayer();
+
+        long key = 0;
+        boolean transposed = false;
+        int ttMove = TranspositionTable.NO_MOVE;
+        int alphaOrig = alpha;
+        if (table != null) {
+            key = engine.getCanonicalHash();
+            transposed = engine.isCanonicalTransposed();
+            long entry = table.probe(key);
+            if (entry != 0) {
+                int move = TranspositionTable.move(entry);
+                if (move != TranspositionTable.NO_MOVE) {
+                    ttMove = Symmetry.canonicalMove(geometry, move, transposed);
+                }
+                //the root always searches, so that it has a move to return
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        MoveList list = lists[ply];
+        int n = list.generate(geometry, engine.getTokens(Player.X), engine.getTokens(Player.O), mover);
+        int[] keys = orderKeys[ply];
+        scoreMoves(list, n, keys, mover, ttMove, ply, depth);
+        int best = -INFINITY;
+        int bestHere = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < n; i++) {
+            //pick the most promising move left and bring it to position i
+            int pick = i;
+            for (int j = i + 1; j < n; j++) {
+                if (keys[j] > keys[pick]) {
+                    pick = j;
+                }
+            }
+            if (pick != i) {
+                list.swap(i, pick);
+                int k = keys[i];
+                keys[i] = keys[pick];
+                keys[pick] = k;
+            }
+            int m = list.move(i);
+            if (ply == 0 && i == 0 && completedDepth == 0) {
+                //until a depth is finished, the most promising move is the answer
+                bestMove = m;
+            }
+            Player winner = engine.makeMove(geometry.moveChar(m));
+            int score;
+            if (winner == Player.BLANK) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = terminalScore(winner, mover, ply + 1);
+            }
+            engine.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestHere = m;
+                if (ply == 0) {
+                    rootMove = m;
+                }
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            if (alpha >= beta) {
+                //a move that wins at once is found anyway, so it makes a poor killer
+                if (winner == Player.BLANK) {
+                    if (killers[ply][0] != m) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = m;
+                    }
+                    if (history[mover.ordinal()][m] < ORDER_KILLER - depth * depth) {
+                        history[mover.ordinal()][m] += depth * depth;
+                    }
+                }
+                break;
+            }
+        }
+
+        if (table != null) {
+            int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, depth, bound, toTable(best, ply), Symmetry.canonicalMove(geometry, bestHere, transposed));
+        }
+        return best;
+    }
+
+    /**
+     * Counts a visited position and checks, now and then, whether the search
+     * has to stop.
+     * @return true if the search has been aborted; false otherwise.
+     */
+    private boolean countNode() {
+        nodes++;
+        if ((nodes & (CLOCK_INTERVAL - 1)) == 0
+                && (stopRequested || (completedDepth > 0 && System.nanoTime() > deadline))) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * Scores the current position of the scratch engine with the heuristic.
+     * @return The score for the player to move.
+     */
+    private int evaluate() {
+        if (bitwise != null) {
+            return uniformWeight * bitwise.evaluate(engine.getTokens(Player.X), engine.getTokens(Player.O),
+                    engine.getCurrentPlayer());
+        }
+        return engine.getEvaluation(engine.getCurrentPlayer());
+    }
+
+    /**
+     * Scores a position at the depth limit. If the player to move can win at
+     * once, that is the score. If the opponent threatens to win at once, every
+     * answer is searched, since the position is not quiet enough for the
+     * heuristic. Otherwise the heuristic decides.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of, negated.
+     * @param ply The distance from the root.
+     * @param pliesLeft How many more plies of answers may be searched.
+     * @return The score for the player to move.
+     */
+    private int quiesce(int alpha, int beta, int ply, int pliesLeft) {
+        if (countNode()) {
+            return 0;
+        }
+        Player mover = engine.getCurrentPlayer();
+        long x = engine.getTokens(Player.X);
+        long o = engine.getTokens(Player.O);
+        MoveList list = lists[ply];
+        int n = list.generate(geometry, x, o, mover);
+        for (int i = 0; i < n; i++) {
+            if (geometry.winner(list.x(i), list.o(i), list.dirtyLines(i)) == mover) {
+                return WIN - (ply + 1);
+            }
+        }
+        if (pliesLeft == 0 || !ThreatSearch.hasImmediateWin(geometry, x, o, GameEngine.otherPlayer(mover), replies[ply])) {
+            return evaluate();
+        }
+
+        int best = -INFINITY;
+        for (int i = 0; i < n; i++) {
+            Player winner = engine.makeMove(geometry.moveChar(list.move(i)));
+            int score;
+            if (winner == Player.BLANK) {
+                score = -quiesce(-beta, -alpha, ply + 1, pliesLeft - 1);
+            } else {
+                score = terminalScore(winner, mover, ply + 1);
+            }
+            engine.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives every successor an ordering key; higher keys are searched first.
+     * @param list The successors.
+     * @param n The number of successors.
+     * @param keys Receives one key per successor.
+     * @param mover The player to move.
+     * @param ttMove The table's best move, or NO_MOVE.
+     * @param ply The distance from the root.
+     * @param depth The number of plies left to search.
+     */
+    private void scoreMoves(MoveList list, int n, int[] keys, Player mover, int ttMove, int ply, int depth) {
+        if (!ordering) {
+            for (int i = 0; i < n; i++) {
+                keys[i] = list.move(i) == ttMove ? ORDER_TABLE : -i;
+            }
+            return;
+        }
+        //the opponent's winning replies, if it could move now; a move on the same line may block them.
+        //right above the leaves this costs more than the better order saves
+        long blocks = 0;
+        MoveList threats = replies[ply];
+        int t = depth < 2 ? 0 : threats.generate(geometry, engine.getTokens(Player.X), engine.getTokens(Player.O), GameEngine.otherPlayer(mover));
+        for (int i = 0; i < t; i++) {
+            if (geometry.winner(threats.x(i), threats.o(i), threats.dirtyLines(i)) == GameEngine.otherPlayer(mover)) {
+                blocks |= 1L << threats.move(i);
+            }
+        }
+        int[] h = history[mover.ordinal()];
+        for (int i = 0; i < n; i++) {
+            int m = list.move(i);
+            if (m == ttMove) {
+                keys[i] = ORDER_TABLE;
+            } else if (geometry.winner(list.x(i), list.o(i), list.dirtyLines(i)) == mover) {
+                keys[i] = ORDER_WIN;
+            } else if ((blocks & (1L << m)) != 0) {
+                keys[i] = ORDER_BLOCK;
+            } else if (m == killers[ply][0]) {
+                keys[i] = ORDER_KILLER + 1;
+            } else if (m == killers[ply][1]) {
+                keys[i] = ORDER_KILLER;
+            } else {
+                keys[i] = h[m];
+            }
+        }
+    }
+
+    /**
+     * Converts a win score from distance-to-root to distance-to-this-position, so
+     * it stays correct when the position is found again at another ply.
+     * @param score The score as returned by the search.
+     * @param ply The distance of the position from the root.
+     * @return The score to store.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WIN_BOUND) {
+            return score + ply;
+        } else if (score < -WIN_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Undoes {@link #toTable(int, int)} for a position found at a given ply.
+     * @param score The stored score.
+     * @param ply The distance of the position from the root.
+     * @return The score as the search uses it.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_BOUND) {
+            return score - ply;
+        } else if (score < -WIN_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Scores a finished game for the player who made the last move.
+     * @param winner The result of the move: a player or Player.TIE.
+     * @param mover The player who made the move.
+     * @param ply The distance from the root after the move.
+     * @return The score for the mover.
+     */
+    private static int terminalScore(Player winner, Player mover, int ply) {
+        if (winner == Player.TIE) {
+            return 0;
+        }
+        return winner == mover ? WIN - ply : -(WIN - ply);
+    }
+}
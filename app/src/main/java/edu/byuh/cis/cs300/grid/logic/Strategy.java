@@ -0,0 +1,16 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * An interface for anything that can choose a move for the computer player.
+ * Implementations only read the snapshot they are given, so they can be
+ * called from a background thread while the game goes on.
+ */
+public interface Strategy {
+
+    /**
+     * Chooses a move for the player to move in the given position.
+     * @param state The current state of the game.
+     * @return A column move '1', '2', ... or a row move 'A', 'B', ...
+     */
+    char getSuggestedMove(GameState state);
+}
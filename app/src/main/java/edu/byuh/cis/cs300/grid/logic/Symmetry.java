@@ -0,0 +1,86 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Canonical forms for the board's one symmetry. Mirroring the board across its
+ * main diagonal turns every row push into the column push with the same number
+ * (and the other way around), and it keeps every winning line a winning line.
+ * So a position and its transpose play out exactly alike once the moves are
+ * relabelled, and a cache only has to store one of them.
+ *
+ * The representative of a pair is the one with the smaller Zobrist hash. Code
+ * that stores positions looks them up by {@link #canonicalHash}, and uses
+ * {@link #isTransposed} with {@link #canonicalMove} to translate the moves it
+ * stores or reads.
+ */
+public final class Symmetry {
+
+    private Symmetry() {
+    }
+
+    /**
+     * Computes the Zobrist hash of the transposed position from scratch.
+     * @param geometry The board configuration.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The player whose turn it is.
+     * @return The hash the position would have after transposing the board.
+     */
+    public static long mirrorHash(Bitboard geometry, long x, long o, Player toMove) {
+        return Zobrist.hash(geometry.transpose(x), geometry.transpose(o), toMove);
+    }
+
+    /**
+     * Picks the hash shared by a position and its transpose.
+     * @param hash The hash of the position.
+     * @param mirrorHash The hash of the transposed position.
+     * @return The same value for both orientations.
+     */
+    public static long canonicalHash(long hash, long mirrorHash) {
+        return Math.min(hash, mirrorHash);
+    }
+
+    /**
+     * Computes the hash shared by a position and its transpose from scratch.
+     * @param geometry The board configuration.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The player whose turn it is.
+     * @return The same value for both orientations.
+     */
+    public static long canonicalHash(Bitboard geometry, long x, long o, Player toMove) {
+        return canonicalHash(Zobrist.hash(x, o, toMove), mirrorHash(geometry, x, o, toMove));
+    }
+
+    /**
+     * Computes the canonical hash of a snapshot.
+     * @param state The position.
+     * @return The same value for the position and its transpose.
+     */
+    public static long canonicalHash(GameState state) {
+        return canonicalHash(state.getGeometry(), state.getTokens(Player.X), state.getTokens(Player.O), state.getPlayerToMove());
+    }
+
+    /**
+     * Tells whether the canonical form of a position is its transpose. When the
+     * two hashes are equal the position is its own transpose, and it is stored
+     * as it is.
+     * @param hash The hash of the position.
+     * @param mirrorHash The hash of the transposed position.
+     * @return true if moves must be transposed on their way into or out of a cache.
+     */
+    public static boolean isTransposed(long hash, long mirrorHash) {
+        return mirrorHash < hash;
+    }
+
+    /**
+     * Translates a move between a position and its canonical form. Transposing
+     * twice gives back the original board, so the same call works both ways.
+     * @param geometry The board configuration.
+     * @param move The move index.
+     * @param transposed The result of {@link #isTransposed(long, long)} for the position.
+     * @return The move index on the other side of the mapping.
+     */
+    public static int canonicalMove(Bitboard geometry, int move, boolean transposed) {
+        return transposed ? geometry.transposeMove(move) : move;
+    }
+}
@@ -0,0 +1,175 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Looks for wins that can be forced with threats alone. A threat is a move
+ * after which the attacker could win with its next move, so the defender has
+ * to answer it. The attacker only tries threats, which are few, while every
+ * answer of the defender is checked, so a win found here is a real forced win.
+ * This finds long forcing sequences for a small fraction of the cost of a
+ * full-width search of the same length.
+ *
+ * The search works directly on the bit masks and reuses its move lists, so it
+ * never allocates.
+ */
+public class ThreatSearch {
+
+    public static final int DEFAULT_THREATS = 3;
+    public static final long DEFAULT_NODE_LIMIT = 200000;
+    //how many positions go by between looks at the clock
+    private static final int CLOCK_INTERVAL = 1024;
+
+    private MoveList[] attackerLists = new MoveList[0];
+    private MoveList[] defenderLists = new MoveList[0];
+    private MoveList[] probeLists = new MoveList[0];
+    private Bitboard geometry;
+    private Player attacker;
+    private Player defender;
+    private int winningMove;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+
+    /**
+     * Checks whether a player could win with a single move.
+     * @param geometry The board configuration.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param player The player to check for.
+     * @param scratch A list to generate the player's moves into.
+     * @return true if one of the player's moves wins at once; false otherwise.
+     */
+    public static boolean hasImmediateWin(Bitboard geometry, long x, long o, Player player, MoveList scratch) {
+        int n = scratch.generate(geometry, x, o, player);
+        for (int i = 0; i < n; i++) {
+            if (geometry.winner(scratch.x(i), scratch.o(i), scratch.dirtyLines(i)) == player) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks for a forced win for the player to move, trying longer sequences of
+     * threats one at a time, so the shortest win is found first.
+     * @param state The position to search.
+     * @param maxThreats The most threats in a row the attacker may make.
+     * @param nodeLimit The most positions to look at before giving up.
+     * @return The index of the first move of a forced win, or -1 if none was found.
+     */
+    public int findForcedWin(GameState state, int maxThreats, long nodeLimit) {
+        return findForcedWin(state, maxThreats, nodeLimit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Looks for a forced win like {@link #findForcedWin(GameState, int, long)},
+     * but also gives up once a deadline has passed.
+     * @param state The position to search.
+     * @param maxThreats The most threats in a row the attacker may make.
+     * @param nodeLimit The most positions to look at before giving up.
+     * @param deadline The System.nanoTime() value to give up at.
+     * @return The index of the first move of a forced win, or -1 if none was found.
+     */
+    public int findForcedWin(GameState state, int maxThreats, long nodeLimit, long deadline) {
+        this.deadline = deadline;
+        geometry = state.getGeometry();
+        attacker = state.getPlayerToMove();
+        defender = GameEngine.otherPlayer(attacker);
+        this.nodeLimit = nodeLimit;
+        nodes = 0;
+        if (attackerLists.length < maxThreats + 1) {
+            attackerLists = new MoveList[maxThreats + 1];
+            defenderLists = new MoveList[maxThreats + 1];
+            probeLists = new MoveList[maxThreats + 1];
+            for (int i = 0; i <= maxThreats; i++) {
+                attackerLists[i] = new MoveList();
+                defenderLists[i] = new MoveList();
+                probeLists[i] = new MoveList();
+            }
+        }
+        long x = state.getTokens(Player.X);
+        long o = state.getTokens(Player.O);
+        for (int threats = 0; threats <= maxThreats && nodes < this.nodeLimit; threats++) {
+            if (attackerWins(x, o, threats, 0)) {
+                return winningMove;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the number of positions the last search looked at.
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks whether the attacker, to move, can win at once or with a threat
+     * every answer to which still loses.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param threatsLeft How many more threats the attacker may make.
+     * @param level How many threats have been made so far.
+     * @return true if the attacker has a forced win; false if none was found.
+     */
+    private boolean attackerWins(long x, long o, int threatsLeft, int level) {
+        if (++nodes > nodeLimit) {
+            return false;
+        }
+        if ((nodes & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() > deadline) {
+            //out of time: treat it like running out of nodes
+            nodeLimit = nodes - 1;
+            return false;
+        }
+        MoveList list = attackerLists[level];
+        int n = list.generate(geometry, x, o, attacker);
+        for (int i = 0; i < n; i++) {
+            if (geometry.winner(list.x(i), list.o(i), list.dirtyLines(i)) == attacker) {
+                winningMove = list.move(i);
+                return true;
+            }
+        }
+        if (threatsLeft == 0) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            long nx = list.x(i);
+            long no = list.o(i);
+            //a move that hands the defender a line, or ties, is no threat
+            if (geometry.winner(nx, no, list.dirtyLines(i)) != Player.BLANK
+                    || !hasImmediateWin(geometry, nx, no, attacker, probeLists[level])) {
+                continue;
+            }
+            if (defenderLoses(nx, no, threatsLeft - 1, level)) {
+                winningMove = list.move(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every answer of the defender, to move, still loses.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param threatsLeft How many more threats the attacker may make.
+     * @param level How many threats have been made so far.
+     * @return true if the defender cannot escape; false otherwise.
+     */
+    private boolean defenderLoses(long x, long o, int threatsLeft, int level) {
+        MoveList replies = defenderLists[level];
+        int n = replies.generate(geometry, x, o, defender);
+        for (int i = 0; i < n; i++) {
+            Player winner = geometry.winner(replies.x(i), replies.o(i), replies.dirtyLines(i));
+            if (winner == attacker) {
+                //the answer completes one of the attacker's lines
+                continue;
+            }
+            if (winner != Player.BLANK || !attackerWins(replies.x(i), replies.o(i), threatsLeft, level + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
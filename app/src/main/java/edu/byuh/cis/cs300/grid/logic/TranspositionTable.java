@@ -0,0 +1,351 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of search results, keyed by position hash. Each entry is
+ * two longs in one preallocated array: the result packed into a single long
+ * (score, depth, bound, best move and the search generation that wrote it),
+ * and the 64-bit key XOR-ed with that result. Nothing is allocated after
+ * construction.
+ *
+ * Several search threads can share one table without locks. Two threads
+ * writing the same slot at once can leave a key from one write next to the
+ * data from the other, but then the XOR no longer gives back the key, so the
+ * probe treats the slot as a miss instead of returning a wrong result. The
+ * statistics counters are not synchronized and are only approximate while
+ * several threads use the table.
+ *
+ * A key can live in any of the BUCKET slots that follow its home slot. When
+ * all of them are taken, the new result replaces the slot that is least worth
+ * keeping: entries left over from earlier searches go first, then the
+ * shallowest entry. A result never replaces a deeper one from the current
+ * search, not even for the same position, unless it is exact. Helper threads
+ * and the ponder share the table, and their shallow bounds would otherwise
+ * keep destroying the main search's deep entries.
+ *
+ * The deepest entries can be saved to a file and loaded into a later table with
+ * {@link #save} and {@link #load}, so a new game does not start from nothing.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+    public static final int NO_MOVE = -1;
+    //"SLTT" in ASCII
+    public static final int FILE_MAGIC = 0x534C5454;
+    public static final int FILE_VERSION = 1;
+
+    private static final int BUCKET = 4;
+    private static final int ENTRY_BYTES = 16;
+    //number of entries looked at when estimating how full the table is
+    private static final int FILL_SAMPLE = 4096;
+
+    //layout of the data word, from the low bits up
+    private static final int MOVE_BITS = 5;
+    private static final int BOUND_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = BOUND_SHIFT + 2;
+    private static final int GENERATION_SHIFT = DEPTH_SHIFT + 8;
+    private static final int SCORE_SHIFT = 32;
+
+    //key ^ data, data, key ^ data, data, ...
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+    private long probes;
+    private long hits;
+    private long stores;
+
+    /**
+     * Creates a table that uses about the given amount of memory.
+     * @param megabytes The memory budget, at least 1. The entry count is rounded
+     *                  down to a power of two.
+     */
+    public TranspositionTable(int megabytes) {
+        long wanted = Math.max(megabytes, 1) * 1024L * 1024L / ENTRY_BYTES;
+        int size = Integer.highestOneBit((int) Math.min(wanted, 1 << 26));
+        entries = new long[2 * size];
+        mask = size - 1;
+    }
+
+    /**
+     * Retrieves the number of entries the table can hold.
+     * @return The capacity in entries.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Starts a new search. Entries written by earlier searches are kept and can
+     * still be found, but they are the first to be replaced.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the statistics.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+        probes = 0;
+        hits = 0;
+        stores = 0;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key The position hash.
+     * @return The packed entry, to be read with {@link #score}, {@link #depth},
+     *         {@link #bound} and {@link #move}, or 0 if the position is not stored.
+     */
+    public long probe(long key) {
+        probes++;
+        int home = (int) key & mask;
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = 2 * ((home + i) & mask);
+            long data = entries[slot + 1];
+            if (data != 0 && (entries[slot] ^ data) == key) {
+                hits++;
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     * @param key The position hash.
+     * @param depth The depth the position was searched to, from 0 to 255.
+     * @param bound EXACT, LOWER (the score is at least this) or UPPER (at most this).
+     * @param score The score, already adjusted for the distance from the root.
+     * @param move The best move index found, or NO_MOVE.
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        stores++;
+        int home = (int) key & mask;
+        int victim = -1;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = 2 * ((home + i) & mask);
+            long data = entries[slot + 1];
+            if (data == 0) {
+                victim = slot;
+                victimWorth = -1;
+                break;
+            }
+            if ((entries[slot] ^ data) == key) {
+                if (bound != EXACT && depth(data) > depth && generation(data) == generation) {
+                    return; //keep the deeper result
+                }
+                victim = slot;
+                victimWorth = -1;
+                break;
+            }
+            //an entry from an older search is worth less than any current one
+            int worth = depth(data) + (generation(data) == generation ? 256 : 0);
+            if (worth < victimWorth) {
+                victimWorth = worth;
+                victim = slot;
+            }
+        }
+        if (victimWorth > 256 + depth) {
+            return;
+        }
+        long data = ((long) score << SCORE_SHIFT)
+                | ((long) generation << GENERATION_SHIFT)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | (move + 1);
+        entries[victim] = key ^ data;
+        entries[victim + 1] = data;
+    }
+
+    /**
+     * Writes the deepest entries to a stream. When there are more entries of at
+     * least minDepth than maxEntries, the deepest ones are kept.
+     * @param out The stream to write to. It is not closed.
+     * @param minDepth The shallowest entry worth saving.
+     * @param maxEntries The most entries to write.
+     * @param fingerprint A value that changes whenever saved scores stop being
+     *                    valid, such as a hash of the evaluation weights.
+     * @return The number of entries written.
+     * @throws IOException If the stream cannot be written.
+     */
+    public int save(OutputStream out, int minDepth, int maxEntries, int fingerprint) throws IOException {
+        //count the entries at each depth, then find the shallowest depth that still fits
+        int[] atDepth = new int[256];
+        for (int i = 1; i < entries.length; i += 2) {
+            if (entries[i] != 0) {
+                atDepth[depth(entries[i])]++;
+            }
+        }
+        int cutoff = 255;
+        int count = atDepth[cutoff];
+        while (cutoff > minDepth && count + atDepth[cutoff - 1] <= maxEntries) {
+            count += atDepth[--cutoff];
+        }
+        int partial = 0;
+        if (cutoff > minDepth && count < maxEntries) {
+            //only some of the next shallower depth fit
+            partial = maxEntries - count;
+            count = maxEntries;
+        }
+        count = Math.min(count, maxEntries);
+
+        //copy the entries first, so the count in the header stays right even
+        //if a search is still writing to the table
+        long[] saved = new long[2 * count];
+        int written = 0;
+        for (int i = 0; i < entries.length && written < count; i += 2) {
+            long value = entries[i + 1];
+            if (value == 0) {
+                continue;
+            }
+            int d = depth(value);
+            if (d == cutoff - 1 && partial > 0) {
+                partial--;
+            } else if (d < cutoff) {
+                continue;
+            }
+            saved[2 * written] = entries[i] ^ value;
+            saved[2 * written + 1] = value;
+            written++;
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeInt(fingerprint);
+        data.writeInt(written);
+        for (int i = 0; i < 2 * written; i++) {
+            data.writeLong(saved[i]);
+        }
+        data.flush();
+        return written;
+    }
+
+    /**
+     * Adds entries written by {@link #save} to this table. They count as left
+     * over from an earlier search, so the next search replaces them first.
+     * @param in The stream to read. It is not closed.
+     * @param fingerprint The value the entries must have been saved with.
+     * @return The number of entries read.
+     * @throws IOException If the stream cannot be read, is not a saved table of
+     *         this version, or was saved with a different fingerprint.
+     */
+    public int load(InputStream in, int fingerprint) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FILE_MAGIC) {
+            throw new IOException("Not a saved table");
+        }
+        int version = data.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("Unsupported table version " + version);
+        }
+        if (data.readInt() != fingerprint) {
+            throw new IOException("Table was saved with other settings");
+        }
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long key = data.readLong();
+            long value = data.readLong();
+            store(key, depth(value), bound(value), score(value), move(value));
+        }
+        return count;
+    }
+
+    /**
+     * Reads the score of a packed entry.
+     * @param data An entry returned by {@link #probe(long)}.
+     * @return The stored score.
+     */
+    public static int score(long data) {
+        return (int) (data >> SCORE_SHIFT);
+    }
+
+    /**
+     * Reads the search depth of a packed entry.
+     * @param data An entry returned by {@link #probe(long)}.
+     * @return The depth the position was searched to.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Reads the bound type of a packed entry.
+     * @param data An entry returned by {@link #probe(long)}.
+     * @return EXACT, LOWER or UPPER.
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * Reads the best move of a packed entry.
+     * @param data An entry returned by {@link #probe(long)}.
+     * @return The move index, or NO_MOVE.
+     */
+    public static int move(long data) {
+        return (int) (data & ((1 << MOVE_BITS) - 1)) - 1;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Retrieves how many lookups have been made since the table was created or cleared.
+     * @return The number of probes.
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Retrieves how many lookups found their position.
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves how many results have been offered to the table.
+     * @return The number of stores, including ones that were turned down.
+     */
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * Retrieves the share of lookups that found their position.
+     * @return The hit rate, from 0 to 1.
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Estimates how full the table is from a sample of its first entries.
+     * @return The share of used entries, from 0 to 1.
+     */
+    public double getFillRate() {
+        int sample = Math.min(FILL_SAMPLE, mask + 1);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (entries[2 * i + 1] != 0) {
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Zobrist hashing for board positions. Every (player, cell) pair and the side
+ * to move get a fixed random 64-bit key, and a position's hash is the XOR of
+ * the keys that apply to it. A push only changes a few cells, so the hash can
+ * be updated by XOR-ing the keys of the changed cells in and out.
+ *
+ * The keys come from a fixed seed, so hashes are the same on every run and can
+ * be stored in files.
+ */
+public final class Zobrist {
+
+    private static final int CELLS = 64;
+    private static final long[] X_KEYS = new long[CELLS];
+    private static final long[] O_KEYS = new long[CELLS];
+    public static final long O_TO_MOVE;
+
+    static {
+        long seed = 0x5EEDC0DE2024L;
+        for (int i = 0; i < CELLS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            X_KEYS[i] = mix(seed);
+            seed += 0x9E3779B97F4A7C15L;
+            O_KEYS[i] = mix(seed);
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        O_TO_MOVE = mix(seed);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the hash of a whole position from scratch.
+     * @param x The cells occupied by X.
+     * @param o The cells occupied by O.
+     * @param toMove The player whose turn it is.
+     * @return The position's hash.
+     */
+    public static long hash(long x, long o, Player toMove) {
+        long h = cells(x, o);
+        return toMove == Player.O ? h ^ O_TO_MOVE : h;
+    }
+
+    /**
+     * XORs together the keys of the given cells. Passing the cells that changed
+     * in a move gives the value to XOR into the previous hash.
+     * @param x Cells to hash as X tokens.
+     * @param o Cells to hash as O tokens.
+     * @return The combined key of the cells.
+     */
+    public static long cells(long x, long o) {
+        long h = 0;
+        for (; x != 0; x &= x - 1) {
+            h ^= X_KEYS[Long.numberOfTrailingZeros(x)];
+        }
+        for (; o != 0; o &= o - 1) {
+            h ^= O_KEYS[Long.numberOfTrailingZeros(o)];
+        }
+        return h;
+    }
+
+    /**
+     * The SplitMix64 finalizer, used to turn a counter into well-mixed keys.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
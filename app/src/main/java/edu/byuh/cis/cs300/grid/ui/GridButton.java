@@ -89,7 +89,7 @@ public class GridButton {
      * @return true if the button is on the top row; false otherwise
      */
     public boolean isTopButton() {
-        return (label >= '1' && label <= '5');
+        return (label >= '1' && label <= '9');
     }
 
     /**
@@ -98,7 +98,7 @@ public class GridButton {
      * @return true if the button is on the left column; false otherwise
      */
     public boolean isLeftButton() {
-        return (label >= 'A' && label <= 'E');
+        return (label >= 'A' && label <= 'Z');
     }
 
     /**
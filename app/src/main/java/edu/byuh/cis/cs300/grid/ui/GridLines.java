@@ -9,11 +9,11 @@ import android.graphics.Paint.Style;
 import android.graphics.RectF;
 
 /**
- * This class is responsible for drawing a 5x5 grid on the screen.
+ * This class is responsible for drawing the square grid of the game board on the screen.
  */
 public class GridLines {
 
-    private final int dim = 5;
+    private final int dim;
     private float lineWidth;
     private Paint paint;
     private RectF bounds;
@@ -24,15 +24,16 @@ public class GridLines {
      * @param x the leftmost x coordinate
      * @param y the topmost y coordinate
      * @param cellWidth how wide each cell should be
+     * @param dim the number of cells in each row and column
      * @param lineWidth how thick the lines should be
      * @param color the color of the lines
      * @param style the style of the lines
-     * @param dim the number of cells in each row and column
      * @param bounds the bounding box of the grid
      * @param paint the Paint object used to draw the lines
      */
-    public GridLines(float x, float y, float cellWidth) {
+    public GridLines(float x, float y, float cellWidth, int dim) {
         this.cellWidth = cellWidth;
+        this.dim = dim;
         lineWidth = cellWidth/20;
         bounds = new RectF(x, y, x+cellWidth*dim, y+cellWidth*dim);
         paint = new Paint();
@@ -5,6 +5,7 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -16,14 +17,29 @@ import android.widget.Toast;
 
 import androidx.appcompat.widget.AppCompatImageView;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import edu.byuh.cis.cs300.grid.logic.Bitboard;
 import edu.byuh.cis.cs300.grid.logic.GameEngine;
 import edu.byuh.cis.cs300.grid.logic.GameHandler;
 import edu.byuh.cis.cs300.grid.logic.GameMode;
+import edu.byuh.cis.cs300.grid.logic.GameState;
+import edu.byuh.cis.cs300.grid.logic.OpeningBook;
+import edu.byuh.cis.cs300.grid.logic.PatternEvaluator;
 import edu.byuh.cis.cs300.grid.logic.Player;
 import edu.byuh.cis.cs300.grid.Prefs;
 import edu.byuh.cis.cs300.grid.logic.TickListener;
@@ -31,6 +47,9 @@ import edu.byuh.cis.cs300.grid.R;
 
 public class GridView extends AppCompatImageView implements TickListener {
 
+    //how long, in milliseconds, the computer seems to think before every move
+    private static final long THINKING_TIME = 1000;
+    private static final String OPENING_BOOK = "opening_book.bin";
     private GameMode gameMode;
     private GridLines grid;
     private boolean firstRun;
@@ -48,6 +67,8 @@ public class GridView extends AppCompatImageView implements TickListener {
     private MediaPlayer flowerfallSound;
     private MediaPlayer flowerslideSound;
     private boolean isAITurn = false;
+    //reads and writes the AI's files, one at a time and away from the UI thread
+    private final ExecutorService storage = Executors.newSingleThreadExecutor();
     static int[] backgrounds = new int[] {0,1,2,3,4,5};
 
 
@@ -90,6 +111,118 @@ public class GridView extends AppCompatImageView implements TickListener {
         flowerSong.release();
     }
 
+    /**
+     * Saves the AI's deepest search results to app storage, so the next game
+     * on this board starts with them. The save runs on the storage thread.
+     */
+    public void saveSearchCache() {
+        if (gameMode != GameMode.ONE_PLAYER) {
+            return; //the AI has not searched anything worth keeping
+        }
+        storage.execute(this::writeSearchCache);
+    }
+
+    /**
+     * Writes the search cache. The file is written next to the old one and
+     * then renamed over it, so a crash halfway never leaves a broken cache.
+     * Runs on the storage thread.
+     */
+    private void writeSearchCache() {
+        File cache = getSearchCache();
+        File temp = new File(cache.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            engine.getAI().saveTable(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(cache)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Loads the search cache saved by an earlier game on this board, if there
+     * is one. The AI can play while it loads. Runs on the storage thread.
+     */
+    private void loadSearchCache() {
+        File cache = getSearchCache();
+        if (cache.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(cache))) {
+                engine.getAI().loadTable(in);
+            } catch (IOException e) {
+                e.printStackTrace(); //start with an empty table
+            }
+        }
+    }
+
+    /**
+     * Stops the AI thinking on the player's time, for example while the app
+     * is in the background.
+     */
+    public void stopPondering() {
+        if (gameMode == GameMode.ONE_PLAYER) {
+            engine.getAI().stopPondering();
+        }
+    }
+
+    /**
+     * Lets the AI think on the player's time again, if it is the player's turn
+     * in a one-player game.
+     */
+    public void resumePondering() {
+        if (!isAITurn && engine.getCurrentPlayer() == Player.X && engine.getState().getWinner() == Player.BLANK) {
+            ponder();
+        }
+    }
+
+    /**
+     * Starts the AI searching the player's possible moves while the player
+     * decides, so its next turn starts with much of the work done.
+     */
+    private void ponder() {
+        if (gameMode == GameMode.ONE_PLAYER) {
+            engine.getAI().startPondering(engine.getState());
+        }
+    }
+
+    /**
+     * Maps the opening book from the app's assets, if it was generated for the
+     * current board. Until it is loaded, or on other boards, the AI searches
+     * the opening instead. Runs on the storage thread.
+     */
+    private void loadOpeningBook() {
+        try (AssetFileDescriptor book = getContext().getAssets().openFd(OPENING_BOOK);
+             FileInputStream in = book.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            if (OpeningBook.readGeometry(channel, book.getStartOffset()) == engine.getGeometry()) {
+                engine.getAI().setOpeningBook(OpeningBook.map(channel, book.getStartOffset(), book.getDeclaredLength()));
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); //search the opening instead
+        }
+    }
+
+    /**
+     * Lets the AI's queued file work finish in the background, then stops the
+     * storage thread. Call it when the view is done with.
+     */
+    public void shutdownStorage() {
+        storage.shutdown();
+    }
+
+    /**
+     * Finds the file the search cache for the current board is kept in.
+     * Every board size and win length has its own.
+     * @return The cache file in the app's private storage.
+     */
+    private File getSearchCache() {
+        Bitboard geometry = engine.getGeometry();
+        return new File(getContext().getFilesDir(),
+                "search_cache_" + geometry.getDim() + "_" + geometry.getWinLength() + ".bin");
+    }
+
     /**
      * Constructor for GridView
      * @param context The context of the application
@@ -99,9 +232,23 @@ public class GridView extends AppCompatImageView implements TickListener {
         super(context);
         this.gameMode = gameMode;
         firstRun = true;
-        buttons = new GridButton[10];
         tokens = new ArrayList<>();
-        engine = new GameEngine();
+        engine = new GameEngine(Bitboard.of(Prefs.getBoardSizePref(context), Prefs.getWinLengthPref(context)));
+        buttons = new GridButton[engine.getGeometry().getMoves()];
+        engine.setRepetitionLimit(3); //a position seen three times ends the game in a tie
+        if (gameMode == GameMode.ONE_PLAYER) {
+            //two players never ask the AI, so it is not even created
+            engine.getAI().setDifficulty(Prefs.getDifficultyPref(context));
+            engine.getAI().setThreads(Math.min(Runtime.getRuntime().availableProcessors(), 4)); //leave cores for the UI on big phones
+            try (InputStream weights = getResources().openRawResource(R.raw.line_weights)) {
+                engine.getAI().setLineWeights(PatternEvaluator.readWeights(weights));
+            } catch (IOException e) {
+                e.printStackTrace(); //keep the built-in weights
+            }
+            storage.execute(this::loadOpeningBook);
+            storage.execute(this::loadSearchCache);
+            ponder(); //the player moves first
+        }
         gameHandler = new GameHandler();
         gameHandler.registerListener(this);
         spaceSong = MediaPlayer.create(getContext(), R.raw.space_music);
@@ -222,14 +369,13 @@ public class GridView extends AppCompatImageView implements TickListener {
                 for (GridButton b : buttons) {
                     if (b.contains(x, y)) {
                         b.press();
-                        GuiToken token = new GuiToken(engine.getCurrentPlayer(), b, getResources(), getContext());
-                        engine.submitMove(b.getLabel());
+                        GuiToken token = new GuiToken(engine.getCurrentPlayer(), b, getResources(), getContext(), engine.getGeometry().getDim());
+                        Player winner = engine.submitMove(b.getLabel());
                         tokens.add(token);
                         gameHandler.registerListener(token);
                         setupAnimation(b, token);
                         missed = false;
 
-                        Player winner = engine.checkForWin();
                         if (winner != Player.BLANK) {
                             showWinnerDialog(winner);
                         } else {
@@ -254,14 +400,23 @@ public class GridView extends AppCompatImageView implements TickListener {
      * Handles the computer's turn in a one-player game mode. This method is invoked
      * when it's the computer's turn to play as Player O. It calculates the computer's
      * move, animates the move, and checks for a winner.
+     * The AI thread only sees an immutable snapshot of the game, and hands its move
+     * back to the UI thread by value, so the two threads never share mutable state.
+     * The AI spends its difficulty's time budget searching, and the thread then waits
+     * out the rest of THINKING_TIME, so the computer always seems to think equally long.
      */
     private void handleComputerTurn() {
         if (gameMode == GameMode.ONE_PLAYER && engine.getCurrentPlayer() == Player.O) {
             isAITurn = true; //set the flag to indicate AI's turn
+            GameState snapshot = engine.getState();
             new Thread(() -> {
                 try {
-                    Thread.sleep(1000); //delay to simulate thinking time
-                    char suggestedMove = engine.suggestNextMove();
+                    long start = System.currentTimeMillis();
+                    char suggestedMove = engine.suggestNextMove(snapshot);
+                    long remaining = THINKING_TIME - (System.currentTimeMillis() - start);
+                    if (remaining > 0) {
+                        Thread.sleep(remaining); //keep the perceived thinking time the same
+                    }
                     GridButton selectedButton = null;
                     for (GridButton button : buttons) {
                         if (button.getLabel() == suggestedMove) {
@@ -272,17 +427,22 @@ public class GridView extends AppCompatImageView implements TickListener {
                     if (selectedButton != null) {
                         GridButton finalSelectedButton = selectedButton;
                         post(() -> {
+                            if (engine.getState() != snapshot) {
+                                //the game was restarted while the AI was thinking
+                                isAITurn = false;
+                                return;
+                            }
                             finalSelectedButton.press();
-                            GuiToken token = new GuiToken(engine.getCurrentPlayer(), finalSelectedButton, getResources(), getContext());
-                            engine.submitMove(finalSelectedButton.getLabel());
+                            GuiToken token = new GuiToken(engine.getCurrentPlayer(), finalSelectedButton, getResources(), getContext(), engine.getGeometry().getDim());
+                            Player winner = engine.submitMove(finalSelectedButton.getLabel());
                             tokens.add(token);
                             gameHandler.registerListener(token);
                             setupAnimation(finalSelectedButton, token);
-                            Player winner = engine.checkForWin();
                             if (winner != Player.BLANK) {
                                 showWinnerDialog(winner);
                             } else {
                                 postDelayed(() -> finalSelectedButton.release(), 200); // delay before releasing the button
+                                ponder(); //think while the player does
                             }
                             isAITurn = false; // Reset the flag after AI's turn is done
                         });
@@ -311,6 +471,7 @@ public class GridView extends AppCompatImageView implements TickListener {
      * @param winner The player who won the game, or Player.BLANK if the game is a tie.
      */
     private void showWinnerDialog(Player winner) {
+        stopPondering(); //nothing left to think about
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
         builder.setTitle(R.string.endgame_title);
         //customize the message based on the winner
@@ -338,6 +499,7 @@ public class GridView extends AppCompatImageView implements TickListener {
                 engine.clear();
                 tokens.clear();
                 engine.setCurrentPlayer(Player.X);
+                ponder();
                 setImageResource(backgrounds[(int) (Math.random() * 6)]);
                 setScaleType(ScaleType.FIT_XY);
                 invalidate();
@@ -359,24 +521,21 @@ public class GridView extends AppCompatImageView implements TickListener {
         float w = getWidth();
         float h = getHeight();
         float unit = w / 16f;
-        float gridX = unit * 2.5f;
-        float cellSize = unit * 2.3f;
+        int dim = engine.getGeometry().getDim();
+        //the buttons plus the grid always span the same width, whatever the board size
+        float cellSize = unit * 13.8f / (dim + 1);
+        float gridX = unit * 0.2f + cellSize;
         float gridY = unit * 9;
-        grid = new GridLines(gridX, gridY, cellSize);
+        grid = new GridLines(gridX, gridY, cellSize, dim);
         float buttonTop = gridY - cellSize;
         float buttonLeft = gridX - cellSize;
 
-        buttons[0] = new GridButton('1', this, buttonLeft + cellSize * 1, buttonTop, cellSize);
-        buttons[1] = new GridButton('2', this, buttonLeft + cellSize * 2, buttonTop, cellSize);
-        buttons[2] = new GridButton('3', this, buttonLeft + cellSize * 3, buttonTop, cellSize);
-        buttons[3] = new GridButton('4', this, buttonLeft + cellSize * 4, buttonTop, cellSize);
-        buttons[4] = new GridButton('5', this, buttonLeft + cellSize * 5, buttonTop, cellSize);
-
-        buttons[5] = new GridButton('A', this, buttonLeft, buttonTop + cellSize * 1, cellSize);
-        buttons[6] = new GridButton('B', this, buttonLeft, buttonTop + cellSize * 2, cellSize);
-        buttons[7] = new GridButton('C', this, buttonLeft, buttonTop + cellSize * 3, cellSize);
-        buttons[8] = new GridButton('D', this, buttonLeft, buttonTop + cellSize * 4, cellSize);
-        buttons[9] = new GridButton('E', this, buttonLeft, buttonTop + cellSize * 5, cellSize);
+        //labels come from the engine's own move mapping, so a pressed button is always a legal move
+        Bitboard geometry = engine.getGeometry();
+        for (int i = 0; i < dim; i++) {
+            buttons[i] = new GridButton(geometry.moveChar(i), this, buttonLeft + cellSize * (i + 1), buttonTop, cellSize);
+            buttons[dim + i] = new GridButton(geometry.moveChar(dim + i), this, buttonLeft, buttonTop + cellSize * (i + 1), cellSize);
+        }
     }
 
     /**
@@ -389,8 +548,9 @@ public class GridView extends AppCompatImageView implements TickListener {
         neighbors.add(tok);
         if (b.isTopButton()) {
             char col = b.getLabel();
-            for (char row = 'A'; row <= 'E'; row++) {
-                GuiToken other = findTokenAtPosition(row, col);
+            Bitboard geometry = engine.getGeometry();
+            for (int r = 0; r < geometry.getDim(); r++) {
+                GuiToken other = findTokenAtPosition(geometry.moveChar(geometry.getDim() + r), col);
                 if (other != null) {
                     neighbors.add(other);
                 } else {
@@ -411,8 +571,9 @@ public class GridView extends AppCompatImageView implements TickListener {
             }
         } else {
             char row = b.getLabel();
-            for (char col = '1'; col <= '5'; col++) {
-                GuiToken other = findTokenAtPosition(row, col);
+            Bitboard geometry = engine.getGeometry();
+            for (int c = 0; c < geometry.getDim(); c++) {
+                GuiToken other = findTokenAtPosition(row, geometry.moveChar(c));
                 if (other != null) {
                     neighbors.add(other);
                 } else {
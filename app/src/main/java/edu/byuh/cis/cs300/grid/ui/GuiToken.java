@@ -24,6 +24,7 @@ public class GuiToken implements TickListener {
     private int slideSpeed;
     private boolean falling = false;
     private Context context;
+    private int dim;
 
     public class GridPosition {
         public char row;
@@ -35,9 +36,11 @@ public class GuiToken implements TickListener {
      * @param p The Player (X or O) who created the token
      * @param parent which button was tapped to create the token
      * @param res the Resources object (used for loading image)
+     * @param dim the number of rows and columns on the board
      */
-    public GuiToken(Player p, GridButton parent, Resources res, Context context) {
+    public GuiToken(Player p, GridButton parent, Resources res, Context context, int dim) {
         this.context = context;
+        this.dim = dim;
         slideSpeed = Prefs.getSpeedPref(context);
         gp = new GridPosition();
         if (parent.isTopButton()) {
@@ -93,7 +96,7 @@ public class GuiToken implements TickListener {
     public void move() {
         if (velocity.x != 0 || velocity.y != 0) {
             if (stepCounter >= slideSpeed) {
-                if (gp.row > 'E' || gp.col > '5') {
+                if (gp.row >= 'A' + dim || gp.col >= '1' + dim) {
                     velocity.set(0, 1);
                     falling = true;
                 } else {
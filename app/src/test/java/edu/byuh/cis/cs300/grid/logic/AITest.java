@@ -0,0 +1,124 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AITest {
+
+    @Test
+    public void ponderingFillsTheTableForEveryReply() throws InterruptedException {
+        AI ai = new AI(3, 16);
+        GameEngine engine = new GameEngine();
+        engine.submitMove(Bitboard.STANDARD.moveChar(0));
+        GameState state = engine.getState();
+        ai.startPondering(state);
+        Thread.sleep(1000);
+        ai.stopPondering();
+
+        //every reply has been searched, so the table knows it to some depth
+        for (int m = 0; m < Bitboard.STANDARD.getMoves(); m++) {
+            if (engine.makeMove(Bitboard.STANDARD.moveChar(m)) == Player.BLANK) {
+                long entry = ai.getTable().probe(engine.getCanonicalHash());
+                assertTrue(entry != 0);
+                assertTrue(TranspositionTable.depth(entry) >= 1);
+            }
+            engine.unmakeMove();
+        }
+    }
+
+    @Test
+    public void ponderingDoesNotChangeTheMove() {
+        GameEngine engine = new GameEngine();
+        engine.submitMove(Bitboard.STANDARD.moveChar(1));
+        GameState state = engine.getState();
+        engine.submitMove(Bitboard.STANDARD.moveChar(Bitboard.STANDARD.getDim() + 2));
+        GameState reply = engine.getState();
+
+        AI plain = new AI(4, 16);
+        AI pondering = new AI(4, 16);
+        pondering.startPondering(state);
+        //the suggestion stops the ponder itself
+        assertEquals(plain.getSuggestedMove(reply), pondering.getSuggestedMove(reply));
+    }
+
+    @Test(timeout = 20000)
+    public void ponderingGoesOnePlyPastTheLastSearch() throws InterruptedException {
+        //HARD allows 64 plies, far more than the search reaches on this board
+        Bitboard board = Bitboard.of(4, 3);
+        AI ai = new AI();
+        ai.setDifficulty(Difficulty.HARD);
+        GameEngine engine = new GameEngine(board);
+        engine.submitMove(board.moveChar(2));
+        char move = ai.getSuggestedMove(engine.getState());
+        //the root entry holds the depth the search finished
+        int reached = TranspositionTable.depth(ai.getTable().probe(engine.getCanonicalHash()));
+        engine.submitMove(move);
+        ai.startPondering(engine.getState());
+        while (ai.isPondering()) {
+            Thread.sleep(10);
+        }
+
+        //the ponder stopped on its own, one ply deeper than the search got
+        int deepest = 0;
+        for (int m = 0; m < board.getMoves(); m++) {
+            if (engine.makeMove(board.moveChar(m)) == Player.BLANK) {
+                deepest = Math.max(deepest, TranspositionTable.depth(ai.getTable().probe(engine.getCanonicalHash())));
+            }
+            engine.unmakeMove();
+        }
+        assertTrue(reached < Difficulty.HARD.getMaxDepth() - 1);
+        assertEquals(reached + 1, deepest);
+    }
+
+    @Test(timeout = 60000)
+    public void ponderResultsSurviveTheNextSearch() throws InterruptedException {
+        //a small table, so the next search has to replace entries to make room
+        Bitboard board = Bitboard.STANDARD;
+        AI ai = new AI(4, 1);
+        GameEngine engine = new GameEngine(board);
+        engine.submitMove(board.moveChar(0));
+        ai.startPondering(engine.getState());
+        while (ai.isPondering()) {
+            Thread.sleep(10);
+        }
+        int[] pondered = new int[board.getMoves()];
+        for (int m = 0; m < board.getMoves(); m++) {
+            if (engine.makeMove(board.moveChar(m)) == Player.BLANK) {
+                pondered[m] = TranspositionTable.depth(ai.getTable().probe(engine.getCanonicalHash()));
+            }
+            engine.unmakeMove();
+        }
+
+        //a deeper search than the ponder's stores many more positions than the table holds
+        ai.setDepth(10);
+        engine.submitMove(board.moveChar(board.getDim()));
+        ai.getSuggestedMove(engine.getState());
+        engine.unmakeMove();
+
+        //the other replies keep what the ponder found for them
+        int kept = 0;
+        for (int m = 0; m < board.getMoves(); m++) {
+            if (engine.makeMove(board.moveChar(m)) == Player.BLANK && pondered[m] > 0) {
+                long entry = ai.getTable().probe(engine.getCanonicalHash());
+                assertTrue(entry != 0);
+                assertTrue(TranspositionTable.depth(entry) >= pondered[m]);
+                kept++;
+            }
+            engine.unmakeMove();
+        }
+        assertTrue(kept > 0);
+    }
+
+    @Test(timeout = 2000)
+    public void stopReturnsPromptly() {
+        AI ai = new AI(30, 16);
+        ai.startPondering(new GameEngine().getState());
+        ai.stopPondering();
+        ai.startPondering(new GameEngine().getState());
+        ai.stopPondering();
+        //stopping twice, or without pondering, is harmless
+        ai.stopPondering();
+    }
+}
@@ -0,0 +1,89 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AnalysisTreeTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void nodesAreOnlyAddedWhenAskedFor() {
+        AnalysisTree tree = new AnalysisTree();
+        int root = tree.reset(new GameEngine().getState());
+        assertEquals(1, tree.getSize());
+        assertFalse(tree.isExpanded(root));
+
+        int child = tree.child(root, 3);
+        assertEquals(1 + BOARD.getMoves(), tree.getSize());
+        assertEquals(BOARD.moveChar(3), tree.getMove(child));
+        assertEquals(Player.X, tree.getMover(child));
+        assertEquals(root, tree.getParent(child));
+
+        //asking again finds the same node without adding any
+        assertEquals(child, tree.child(root, 3));
+        assertEquals(1 + BOARD.getMoves(), tree.getSize());
+    }
+
+    @Test
+    public void matchesAnEagerlyBuiltTree() {
+        AnalysisTree tree = new AnalysisTree();
+        GameEngine engine = new GameEngine();
+        engine.submitMove('C');
+        engine.submitMove('3');
+        int root = tree.reset(engine.getState());
+        int checked = visit(tree, root, engine.getState(), 3);
+        assertEquals(BOARD.getMoves() * (1 + BOARD.getMoves() * (1 + BOARD.getMoves())), checked);
+    }
+
+    @Test
+    public void staysWithinItsCapacity() {
+        AnalysisTree tree = new AnalysisTree(1 + 2 * BOARD.getMoves());
+        int root = tree.reset(new GameEngine().getState());
+        int first = tree.child(root, 0);
+        assertTrue(tree.child(first, 0) != AnalysisTree.NONE);
+        //no room left for a third set of children
+        assertEquals(AnalysisTree.NONE, tree.child(tree.child(root, 1), 0));
+        assertEquals(tree.getCapacity(), tree.getSize());
+
+        //resetting reuses the arena
+        tree.reset(new GameEngine().getState());
+        assertEquals(1, tree.getSize());
+        assertTrue(tree.child(tree.child(root, 1), 0) != AnalysisTree.NONE);
+    }
+
+    /**
+     * Walks every node down to a depth and checks it against a board replayed
+     * from its path.
+     * @return The number of nodes checked, not counting the root.
+     */
+    private static int visit(AnalysisTree tree, int node, GameState rootState, int depth) {
+        if (depth == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int m = 0; m < tree.getChildCount(node); m++) {
+            int child = tree.child(node, m);
+            long[] board = {rootState.getTokens(Player.X), rootState.getTokens(Player.O)};
+            Player player = rootState.getPlayerToMove();
+            long path = tree.getPath(child);
+            int cumulative = 0;
+            for (int ply = 0; ply < tree.getDepth(child); ply++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(AnalysisTree.pathMove(path, ply)), player, board);
+                cumulative += LoopEvaluator.evaluateGrid(BOARD, board, player);
+                player = GameEngine.otherPlayer(player);
+            }
+            assertEquals(board[0], tree.getTokens(child, Player.X));
+            assertEquals(board[1], tree.getTokens(child, Player.O));
+            assertEquals(LoopEvaluator.evaluateGrid(BOARD, board, tree.getMover(child)), tree.getScore(child));
+            assertEquals(cumulative, tree.getCumulativeScore(child));
+            assertEquals(BOARD.winner(board[0], board[1]), tree.getWinner(child));
+            assertEquals(m, AnalysisTree.pathMove(path, tree.getDepth(child) - 1));
+            count += 1 + visit(tree, child, rootState, depth - 1);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Plays random games on every supported board size and win length, and checks
+ * the bitboard pushes and win detection against a plain 2D array.
+ */
+public class BitboardTest {
+
+    @Test
+    public void everyBoardSizeMatchesArrayImplementation() {
+        Random random = new Random(8);
+        for (int dim = Bitboard.MIN_DIM; dim <= Bitboard.MAX_DIM; dim++) {
+            for (int k = Bitboard.MIN_DIM; k <= dim; k++) {
+                Bitboard geometry = Bitboard.of(dim, k);
+                for (int game = 0; game < 300; game++) {
+                    GameEngine engine = new GameEngine(geometry);
+                    Player[][] grid = new Player[dim][dim];
+                    for (Player[] row : grid) {
+                        java.util.Arrays.fill(row, Player.BLANK);
+                    }
+                    Player result = Player.BLANK;
+                    while (result == Player.BLANK) {
+                        int m = random.nextInt(geometry.getMoves());
+                        push(grid, m, engine.getCurrentPlayer());
+                        result = engine.submitMove(geometry.moveChar(m));
+                        for (int r = 0; r < dim; r++) {
+                            for (int c = 0; c < dim; c++) {
+                                long[] board = {engine.getTokens(Player.X), engine.getTokens(Player.O)};
+                                assertEquals(grid[r][c], geometry.cell(board, r, c));
+                            }
+                        }
+                        assertEquals(dim + "x" + dim + " k=" + k, bruteForceWinner(grid, k), result);
+                    }
+                    //and back to the empty board again
+                    while (engine.getMoveCount() > 0) {
+                        engine.unmakeMove();
+                    }
+                    assertEquals(0, engine.getTokens(Player.X) | engine.getTokens(Player.O));
+                }
+            }
+        }
+    }
+
+    private static void push(Player[][] grid, int move, Player player) {
+        int dim = grid.length;
+        Player carried = player;
+        for (int i = 0; i < dim; i++) {
+            int r = move < dim ? i : move - dim;
+            int c = move < dim ? move : i;
+            Player tmp = grid[r][c];
+            grid[r][c] = carried;
+            if (tmp == Player.BLANK) {
+                return;
+            }
+            carried = tmp;
+        }
+    }
+
+    private static boolean run(Player[][] grid, Player p, int r, int c, int dr, int dc, int k) {
+        int dim = grid.length;
+        for (int i = 0; i < k; i++) {
+            int rr = r + i * dr;
+            int cc = c + i * dc;
+            if (rr < 0 || cc < 0 || rr >= dim || cc >= dim || grid[rr][cc] != p) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean lineHasRun(Player[][] grid, Player p, int r, int c, int dr, int dc, int k) {
+        int dim = grid.length;
+        for (; r >= 0 && c >= 0 && r < dim && c < dim; r += dr, c += dc) {
+            if (run(grid, p, r, c, dr, dc, k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Player bruteForceWinner(Player[][] grid, int k) {
+        int dim = grid.length;
+        Player[] players = {Player.X, Player.O};
+        //diagonals decide the game outright, unless both players have one
+        Player winner = Player.BLANK;
+        for (Player p : players) {
+            boolean diagonal = false;
+            for (int offset = k - dim; offset <= dim - k; offset++) {
+                diagonal |= lineHasRun(grid, p, Math.max(0, -offset), Math.max(0, offset), 1, 1, k);
+            }
+            for (int sum = k - 1; sum <= 2 * dim - 1 - k; sum++) {
+                diagonal |= lineHasRun(grid, p, Math.max(0, sum - dim + 1), Math.min(sum, dim - 1), 1, -1, k);
+            }
+            if (diagonal) {
+                winner = winner == Player.BLANK ? p : Player.TIE;
+            }
+        }
+        if (winner != Player.BLANK) {
+            return winner;
+        }
+        for (int i = 0; i < dim; i++) {
+            for (Player p : players) {
+                if (lineHasRun(grid, p, 0, i, 1, 0, k)) {
+                    winner = winner == Player.BLANK ? p : Player.TIE;
+                }
+                if (lineHasRun(grid, p, i, 0, 0, 1, k)) {
+                    winner = winner == Player.BLANK ? p : Player.TIE;
+                }
+            }
+        }
+        return winner;
+    }
+}
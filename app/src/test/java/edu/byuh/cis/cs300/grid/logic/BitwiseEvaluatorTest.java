@@ -0,0 +1,104 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BitwiseEvaluatorTest {
+
+    @Test
+    public void matchesEvaluateGridOnRandomBoards() {
+        Random random = new Random(20);
+        for (int dim = Bitboard.MIN_DIM; dim <= Bitboard.MAX_DIM; dim++) {
+            for (int k = Bitboard.MIN_DIM; k <= dim; k++) {
+                Bitboard geometry = Bitboard.of(dim, k);
+                BitwiseEvaluator evaluator = new BitwiseEvaluator(geometry);
+                for (int i = 0; i < 3000; i++) {
+                    long[] board = randomBoard(random, geometry);
+                    for (Player p : new Player[] {Player.X, Player.O}) {
+                        assertEquals(LoopEvaluator.evaluateGrid(geometry, board, p), evaluator.evaluate(board[0], board[1], p));
+                    }
+                }
+                //a full board has no open lines at all
+                long x = random.nextLong() & geometry.getBoardMask();
+                assertEquals(0, evaluator.evaluate(x, ~x & geometry.getBoardMask(), Player.X));
+            }
+        }
+    }
+
+    @Test
+    public void reportsSpeedAgainstTheLoop() {
+        Bitboard geometry = Bitboard.STANDARD;
+        BitwiseEvaluator evaluator = new BitwiseEvaluator(geometry);
+        Random random = new Random(21);
+        long[][] boards = new long[4096][];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = randomBoard(random, geometry);
+        }
+        int rounds = 200;
+        long sink = 0;
+        //warm both versions up first, so the JIT has compiled them before timing
+        for (int r = 0; r < rounds; r++) {
+            sink += loop(geometry, boards) - bitwise(evaluator, boards);
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            sink += loop(geometry, boards);
+        }
+        long loopNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            sink -= bitwise(evaluator, boards);
+        }
+        long bitwiseNanos = System.nanoTime() - start;
+
+        double evaluations = (double) rounds * boards.length;
+        System.out.printf("evaluateGrid %.1f ns, bitwise %.1f ns per board%n",
+                loopNanos / evaluations, bitwiseNanos / evaluations);
+        //both versions score the same boards, so the sums cancel out
+        assertEquals(0, sink);
+        assertTrue(bitwiseNanos > 0);
+    }
+
+    private static long loop(Bitboard geometry, long[][] boards) {
+        long sum = 0;
+        for (long[] board : boards) {
+            sum += LoopEvaluator.evaluateGrid(geometry, board, Player.X);
+        }
+        return sum;
+    }
+
+    private static long bitwise(BitwiseEvaluator evaluator, long[][] boards) {
+        long sum = 0;
+        for (long[] board : boards) {
+            sum += evaluator.evaluate(board[0], board[1], Player.X);
+        }
+        return sum;
+    }
+
+    /**
+     * Fills a board to a random density, so that open lines, blocked lines
+     * and full lines all turn up.
+     */
+    private static long[] randomBoard(Random random, Bitboard geometry) {
+        int cells = geometry.getDim() * geometry.getDim();
+        int tokens = random.nextInt(cells + 1);
+        long x = 0;
+        long o = 0;
+        for (int i = 0; i < tokens; i++) {
+            long cell = 1L << random.nextInt(cells);
+            if (((x | o) & cell) == 0) {
+                if (random.nextBoolean()) {
+                    x |= cell;
+                } else {
+                    o |= cell;
+                }
+            }
+        }
+        return new long[] {x, o};
+    }
+}
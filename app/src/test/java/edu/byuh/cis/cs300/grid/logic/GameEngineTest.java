@@ -0,0 +1,208 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class GameEngineTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void unmakeMoveRestoresEveryEarlierPosition() {
+        Random random = new Random(4);
+        GameEngine engine = new GameEngine();
+        for (int game = 0; game < 2000; game++) {
+            engine.clear();
+            engine.setCurrentPlayer(Player.X);
+            long[][] history = new long[60][];
+            Player[] players = new Player[60];
+            long[] board = new long[2];
+            int n = 0;
+            while (n < history.length) {
+                history[n] = board.clone();
+                players[n] = engine.getCurrentPlayer();
+                char move = BOARD.moveChar(random.nextInt(BOARD.getMoves()));
+                engine.makeMove(move);
+                GameEngine.doOneMove(BOARD, move, players[n], board);
+                n++;
+            }
+            while (n > 0) {
+                n--;
+                engine.unmakeMove();
+                assertEquals(players[n], engine.getCurrentPlayer());
+                long[] expected = history[n];
+                assertEquals(expected[0], engine.getTokens(Player.X));
+                assertEquals(expected[1], engine.getTokens(Player.O));
+                long[] probe = expected.clone();
+                //replaying the same move from the restored position must land on the same board again
+                char move = BOARD.moveChar(random.nextInt(BOARD.getMoves()));
+                Player fromEngine = engine.makeMove(move);
+                assertEquals(GameEngine.doOneMove(BOARD, move, players[n], probe), fromEngine);
+                engine.unmakeMove();
+                assertEquals(n, engine.getMoveCount());
+            }
+        }
+    }
+
+    @Test
+    public void undoMovePublishesThePreviousPosition() {
+        GameEngine engine = new GameEngine();
+        GameState before = engine.getState();
+        engine.submitMove(BOARD.moveChar(2));
+        engine.undoMove();
+        GameState after = engine.getState();
+        assertTrue(after != before);
+        assertEquals(before.getTokens(Player.X), after.getTokens(Player.X));
+        assertEquals(before.getTokens(Player.O), after.getTokens(Player.O));
+        assertEquals(Player.X, after.getPlayerToMove());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void undoOnAFreshGameIsRejected() {
+        new GameEngine().undoMove();
+    }
+
+    @Test
+    public void incrementalHashMatchesFullHash() {
+        Random random = new Random(7);
+        GameEngine engine = new GameEngine();
+        for (int i = 0; i < 20000; i++) {
+            if (engine.getMoveCount() > 0 && random.nextInt(3) == 0) {
+                engine.unmakeMove();
+            } else {
+                engine.makeMove(BOARD.moveChar(random.nextInt(BOARD.getMoves())));
+            }
+            long expected = Zobrist.hash(engine.getTokens(Player.X), engine.getTokens(Player.O), engine.getCurrentPlayer());
+            assertEquals(expected, engine.getHash());
+        }
+        engine.submitMove('C');
+        assertEquals(engine.getHash(), engine.getState().getHash());
+    }
+
+    @Test
+    public void incrementalEvaluationMatchesFullEvaluation() {
+        Random random = new Random(9);
+        for (Bitboard geometry : new Bitboard[] {BOARD, Bitboard.of(4, 3), Bitboard.of(7, 5)}) {
+            PatternEvaluator evaluator = new PatternEvaluator(geometry, new int[] {0, 1, 3, 9, 27});
+            GameEngine engine = new GameEngine(geometry);
+            engine.setEvaluator(evaluator);
+            for (int i = 0; i < 20000; i++) {
+                if (engine.getMoveCount() > 0 && random.nextInt(3) == 0) {
+                    engine.unmakeMove();
+                } else {
+                    engine.makeMove(geometry.moveChar(random.nextInt(geometry.getMoves())));
+                }
+                long x = engine.getTokens(Player.X);
+                long o = engine.getTokens(Player.O);
+                assertEquals(evaluator.evaluate(x, o, Player.X), engine.getEvaluation(Player.X));
+                assertEquals(evaluator.evaluate(x, o, Player.O), engine.getEvaluation(Player.O));
+            }
+            engine.clear();
+            assertEquals(0, engine.getEvaluation(Player.X));
+        }
+    }
+
+    @Test
+    public void repeatedPositionIsReportedAsTie() {
+        Random random = new Random(8);
+        int draws = 0;
+        for (int game = 0; game < 500; game++) {
+            GameEngine engine = new GameEngine();
+            engine.setRepetitionLimit(3);
+            Map<Long, Integer> seen = new HashMap<>();
+            seen.put(engine.getHash(), 1);
+            Player result = Player.BLANK;
+            while (result == Player.BLANK) {
+                //only push along the first two rows, so positions repeat quickly
+                result = engine.submitMove(random.nextBoolean() ? 'A' : 'B');
+                int count = seen.merge(engine.getHash(), 1, Integer::sum);
+                if (result == Player.TIE && engine.getState().getWinner() == Player.BLANK) {
+                    assertEquals(3, count);
+                    assertEquals(Player.TIE, engine.checkForWin());
+                    draws++;
+                } else {
+                    assertTrue(count < 3 || result != Player.BLANK);
+                }
+            }
+        }
+        assertTrue(draws > 0);
+    }
+
+    @Test
+    public void repetitionSurvivesSnapshotsAndSkippedTurns() {
+        Random random = new Random(7);
+        int draws = 0;
+        for (int game = 0; game < 300; game++) {
+            GameEngine engine = new GameEngine();
+            engine.setRepetitionLimit(3);
+            Map<Long, Integer> seen = new HashMap<>();
+            seen.put(engine.getHash(), 1);
+            Player result = Player.BLANK;
+            while (result == Player.BLANK) {
+                if (random.nextInt(5) == 0) {
+                    //hand the turn over without a move, which breaks strict alternation
+                    seen.merge(engine.getHash(), -1, Integer::sum);
+                    engine.setCurrentPlayer(GameEngine.otherPlayer(engine.getCurrentPlayer()));
+                    seen.merge(engine.getHash(), 1, Integer::sum);
+                }
+                char move = random.nextBoolean() ? 'A' : 'B';
+                //an engine continued from the snapshot must see the same draw
+                Player fromSnapshot = new GameEngine(engine.getState()).makeMove(move);
+                result = engine.submitMove(move);
+                assertEquals(result, fromSnapshot);
+                int count = seen.merge(engine.getHash(), 1, Integer::sum);
+                if (result == Player.TIE && engine.getState().getWinner() == Player.BLANK) {
+                    assertEquals(3, count);
+                    draws++;
+                } else {
+                    assertTrue(count < 3 || result != Player.BLANK);
+                }
+            }
+        }
+        assertTrue(draws > 0);
+    }
+
+    @Test
+    public void enginesOnDifferentThreadsDoNotShareState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int seed = 0; seed < 1000; seed++) {
+            final int gameSeed = seed;
+            results.add(pool.submit(() -> playRandomGame(gameSeed)));
+        }
+        for (int seed = 0; seed < results.size(); seed++) {
+            long[] expected = playRandomGame(seed);
+            long[] actual = results.get(seed).get();
+            assertEquals(expected[0], actual[0]);
+            assertEquals(expected[1], actual[1]);
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Plays random moves on a fresh engine until someone wins or 200 moves are made.
+     * @return The final board as {X mask, O mask}.
+     */
+    private static long[] playRandomGame(int seed) {
+        Random random = new Random(seed);
+        GameEngine engine = new GameEngine();
+        for (int i = 0; i < 200; i++) {
+            if (engine.submitMove(BOARD.moveChar(random.nextInt(BOARD.getMoves()))) != Player.BLANK) {
+                break;
+            }
+            Thread.yield();
+        }
+        return new long[] {engine.getTokens(Player.X), engine.getTokens(Player.O)};
+    }
+}
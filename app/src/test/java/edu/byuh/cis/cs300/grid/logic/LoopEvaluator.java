@@ -0,0 +1,53 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * The original open-line count, which walks every cell of every winning line.
+ * It is far too slow for the search, but it is simple enough to be obviously
+ * right, so the tests check the faster evaluators against it.
+ */
+public class LoopEvaluator {
+
+    /**
+     * Evaluates the given grid and returns a score representing the number of open lines the given player has minus the number of open lines the opponent has.
+     * A higher score indicates more open lines for the given player and fewer open lines for the opponent.
+     * @param geometry The board size and win length.
+     * @param board The board to be evaluated.
+     * @param player The player for whom the score is being calculated.
+     * @return The score for the given player.
+     */
+    public static int evaluateGrid(Bitboard geometry, long[] board, Player player) {
+        int score = 0;
+
+        //evaluate rows, columns, and diagonals for potential wins
+        //count the number of open lines in each direction
+        int openLines = 0;
+        int opponentOpenLines = 0;
+        long mine = board[player.ordinal()];
+        long theirs = board[GameEngine.otherPlayer(player).ordinal()];
+
+        for (int i = 0; i < geometry.getLines(); i++) {
+            boolean isBlank = false;
+            boolean isPlayer = false;
+            boolean isOpponent = false;
+            for (long cells = geometry.winLine(i); cells != 0; cells &= cells - 1) {
+                long cell = cells & -cells;
+                if ((mine & cell) != 0) {
+                    isPlayer = true;
+                } else if ((theirs & cell) != 0) {
+                    isOpponent = true;
+                } else {
+                    isBlank = true;
+                }
+            }
+            if (isBlank && isPlayer && !isOpponent) {
+                openLines++;
+            }
+            if (isBlank && isOpponent && !isPlayer) {
+                opponentOpenLines++;
+            }
+        }
+
+        score = openLines - opponentOpenLines;
+        return score;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MonteCarloTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void takesAnImmediateWin() {
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        MonteCarlo mcts = new MonteCarlo(0);
+        int m = mcts.search(new GameState(BOARD, x, o, Player.X, 7), 0, 5000);
+        long[] board = {x, o};
+        assertEquals(Player.X, GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board));
+    }
+
+    @Test
+    public void blocksTheOpponentsWin() {
+        long o = BOARD.line(BOARD.moveIndex('1')) & ~BOARD.bit(0, 0);
+        long x = BOARD.bit(1, 1) | BOARD.bit(2, 2) | BOARD.bit(4, 3);
+        MonteCarlo mcts = new MonteCarlo(0);
+        int m = mcts.search(new GameState(BOARD, x, o, Player.X, 7), 0, 20000);
+        long[] board = {x, o};
+        GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board);
+        MoveList replies = new MoveList();
+        for (int i = 0; i < replies.generate(BOARD, board[0], board[1], Player.O); i++) {
+            assertEquals(Player.BLANK, BOARD.winner(replies.x(i), replies.o(i)));
+        }
+    }
+
+    @Test
+    public void theSmallestTreeStillReturnsAMove() {
+        Bitboard big = Bitboard.of(Bitboard.MAX_DIM, 5);
+        MonteCarlo mcts = new MonteCarlo(0, MonteCarlo.MIN_CAPACITY);
+        int m = mcts.search(new GameState(big, 0, 0, Player.X, 0), 0, 500);
+        assertTrue(m >= 0 && m < big.getMoves());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aTreeTooSmallForTheRootIsRejected() {
+        new MonteCarlo(0, MonteCarlo.MIN_CAPACITY - 1);
+    }
+
+    @Test
+    public void playoutsScaleWithTheTimeBudget() {
+        MonteCarlo mcts = new MonteCarlo(0);
+        GameState start = new GameState(BOARD, 0, 0, Player.X, 0);
+        mcts.search(start, 100, Long.MAX_VALUE);
+        long shortRun = mcts.getPlayouts();
+        mcts.search(start, 400, Long.MAX_VALUE);
+        long longRun = mcts.getPlayouts();
+        System.out.println("MCTS: " + shortRun + " playouts in 100 ms, " + longRun + " in 400 ms ("
+                + Math.round(mcts.getPlayoutsPerSecond()) + "/s, " + mcts.getTreeSize() + " nodes)");
+        assertTrue(longRun > 2 * shortRun);
+    }
+}
@@ -0,0 +1,57 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MoveListTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void successorsAreDistinctAndCoverEveryMove() {
+        Random random = new Random(9);
+        MoveList list = new MoveList();
+        long total = 0;
+        long distinct = 0;
+        for (int game = 0; game < 2000; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            for (int ply = 0; ply < 40; ply++) {
+                int n = list.generate(BOARD, board[0], board[1], player);
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        assertTrue(list.x(i) != list.x(j) || list.o(i) != list.o(j));
+                    }
+                }
+                for (int m = 0; m < BOARD.getMoves(); m++) {
+                    long[] probe = board.clone();
+                    GameEngine.doOneMove(BOARD, BOARD.moveChar(m), player, probe);
+                    int i = list.indexOf(probe[0], probe[1]);
+                    assertTrue(i >= 0);
+                    assertTrue(list.move(i) <= m);
+                }
+                total += BOARD.getMoves();
+                distinct += n;
+                if (GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board) != Player.BLANK) {
+                    break;
+                }
+                player = GameEngine.otherPlayer(player);
+            }
+        }
+        System.out.println("Distinct successors: " + distinct + " of " + total + " moves");
+    }
+
+    @Test
+    public void pushingIntoAFullLineOfOwnTokensChangesNothing() {
+        long row = BOARD.line(BOARD.moveIndex('A'));
+        long col = BOARD.line(BOARD.moveIndex('1'));
+        MoveList list = new MoveList();
+        //'A' and '1' push X along a line that is already all X, so neither changes the board,
+        //and 'B' and '2' both end up adding just the cell at row B, column 2
+        assertEquals(BOARD.getMoves() - 2, list.generate(BOARD, row | col, 0, Player.X));
+    }
+}
@@ -0,0 +1,127 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds the opening book shipped in the app's assets. It walks the opening
+ * from both sides: where the book side is to move, the position is searched
+ * deeply and only the book move is followed; where the opponent is to move,
+ * every reply is followed. Positions that are transposes of each other are
+ * searched once.
+ *
+ * Run it from the app module with the test classes on the class path:
+ * java edu.byuh.cis.cs300.grid.logic.OpeningBookGenerator
+ *     [output [plies [depth [millis [dim [winLength]]]]]]
+ */
+public class OpeningBookGenerator {
+
+    private final Bitboard geometry;
+    private final int plies;
+    private final int depth;
+    private final long timeBudgetMillis;
+    private final Search search = new Search(new TranspositionTable(64));
+    private final Set<Long> seen = new HashSet<>();
+    private long[] keys = new long[256];
+    private int[] moves = new int[256];
+    private int[] depths = new int[256];
+    private int[] scores = new int[256];
+    private int size;
+
+    /**
+     * Sets up a generator.
+     * @param geometry The board to build the book for.
+     * @param plies How many plies into the game the book reaches.
+     * @param depth The depth every book position is searched to.
+     * @param timeBudgetMillis The most time to spend on one position.
+     */
+    public OpeningBookGenerator(Bitboard geometry, int plies, int depth, long timeBudgetMillis) {
+        this.geometry = geometry;
+        this.plies = plies;
+        this.depth = depth;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "src/main/assets/opening_book.bin";
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        long millis = args.length > 3 ? Long.parseLong(args[3]) : 1500;
+        int dim = args.length > 4 ? Integer.parseInt(args[4]) : Bitboard.STANDARD.getDim();
+        int winLength = args.length > 5 ? Integer.parseInt(args[5]) : dim;
+
+        long start = System.currentTimeMillis();
+        OpeningBookGenerator generator = new OpeningBookGenerator(Bitboard.of(dim, winLength), plies, depth, millis);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            generator.generate(out);
+        }
+        System.out.printf("%d positions written to %s in %d s%n", generator.size, output,
+                (System.currentTimeMillis() - start) / 1000);
+    }
+
+    /**
+     * Searches the opening for both sides and writes the book.
+     * @param out The stream to write the book to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void generate(OutputStream out) throws IOException {
+        for (Player side : new Player[] {Player.X, Player.O}) {
+            walk(new GameEngine(geometry), side, 0);
+        }
+        OpeningBook.write(out, geometry, Arrays.copyOf(keys, size), Arrays.copyOf(moves, size),
+                Arrays.copyOf(depths, size), Arrays.copyOf(scores, size));
+    }
+
+    /**
+     * Adds the book side's positions below the engine's current position.
+     * @param engine The game so far.
+     * @param side The player the book moves are for.
+     * @param ply How many moves have been made.
+     */
+    private void walk(GameEngine engine, Player side, int ply) {
+        if (ply >= plies) {
+            return;
+        }
+        if (engine.getCurrentPlayer() != side) {
+            for (int m = 0; m < geometry.getMoves(); m++) {
+                if (engine.makeMove(geometry.moveChar(m)) == Player.BLANK) {
+                    walk(engine, side, ply + 1);
+                }
+                engine.unmakeMove();
+            }
+            return;
+        }
+        long key = engine.getCanonicalHash();
+        if (!seen.add(key)) {
+            return;
+        }
+        GameState state = new GameState(geometry, engine.getTokens(Player.X), engine.getTokens(Player.O),
+                engine.getCurrentPlayer(), ply);
+        int move = search.search(state, depth, timeBudgetMillis);
+        add(key, Symmetry.canonicalMove(geometry, move, engine.isCanonicalTransposed()),
+                search.getCompletedDepth(), search.getScore());
+        if (engine.makeMove(geometry.moveChar(move)) == Player.BLANK) {
+            walk(engine, side, ply + 1);
+        }
+        engine.unmakeMove();
+    }
+
+    private void add(long key, int move, int completedDepth, int score) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            moves = Arrays.copyOf(moves, size * 2);
+            depths = Arrays.copyOf(depths, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        keys[size] = key;
+        moves[size] = move;
+        depths[size] = completedDepth;
+        scores[size] = score;
+        size++;
+    }
+}
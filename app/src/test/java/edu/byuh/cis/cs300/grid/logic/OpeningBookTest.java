@@ -0,0 +1,77 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class OpeningBookTest {
+
+    private static final Bitboard BOARD = Bitboard.of(4, 4);
+
+    @Test
+    public void bookMovesMatchTheSearchInBothOrientations() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new OpeningBookGenerator(BOARD, 3, 4, 0).generate(bytes);
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(BOARD, book.getGeometry());
+        assertTrue(book.size() > 0);
+
+        //the book answers the empty board, and every reply to its first move
+        GameEngine engine = new GameEngine(BOARD);
+        int first = book.probe(engine.getState());
+        assertEquals(new Search(new TranspositionTable(64)).search(engine.getState(), 4), first);
+        assertEquals(4, book.getDepth(engine.getState()));
+        engine.submitMove(BOARD.moveChar(first));
+        for (int reply = 0; reply < BOARD.getMoves(); reply++) {
+            engine.submitMove(BOARD.moveChar(reply));
+            GameState state = engine.getState();
+            int move = book.probe(state);
+            assertTrue(move >= 0);
+
+            //the transposed game gets the transposed move
+            GameState mirror = new GameState(BOARD, BOARD.transpose(state.getTokens(Player.X)),
+                    BOARD.transpose(state.getTokens(Player.O)), state.getPlayerToMove(), state.getMoveNumber());
+            assertEquals(BOARD.transposeMove(move), book.probe(mirror));
+            engine.unmakeMove();
+        }
+
+        //positions the book never reaches, or other boards, are not answered
+        engine.submitMove(BOARD.moveChar(0));
+        engine.submitMove(BOARD.moveChar(0));
+        engine.submitMove(BOARD.moveChar(0));
+        assertEquals(-1, book.probe(engine.getState()));
+        assertEquals(-1, book.probe(new GameEngine().getState()));
+    }
+
+    @Test
+    public void mappedFileReadsTheSameAsABuffer() throws IOException {
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        long[] keys = {30, -5, 12};
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            OpeningBook.write(out, Bitboard.STANDARD, keys, new int[] {1, 2, 3}, new int[] {9, 9, 9}, new int[] {0, 0, 0});
+        }
+        OpeningBook book;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            assertEquals(Bitboard.STANDARD, OpeningBook.readGeometry(channel, 0));
+            book = OpeningBook.map(channel, 0, channel.size());
+        }
+        assertEquals(3, book.size());
+        GameState empty = new GameEngine().getState();
+        assertEquals(-1, book.probe(empty));
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        new OpeningBook(ByteBuffer.wrap(new byte[] {'P', 'K', 3, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}));
+    }
+}
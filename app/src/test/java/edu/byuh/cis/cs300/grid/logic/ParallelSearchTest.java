@@ -0,0 +1,74 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Compares Lazy SMP against a single thread at a fixed depth, and prints the
+ * speedup for each thread count.
+ */
+public class ParallelSearchTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+    private static final int DEPTH = 8;
+
+    @Test
+    public void reportsSpeedupAtFixedDepth() {
+        GameState[] positions = randomPositions(new Random(14), 6);
+        int cores = Runtime.getRuntime().availableProcessors();
+        //warm up the JIT so the single-threaded run is not penalized
+        for (GameState position : positions) {
+            new ParallelSearch(new TranspositionTable(16), 1).search(position, DEPTH, 0);
+        }
+        long single = 0;
+        for (int threads = 1; threads <= Math.max(cores, 2); threads *= 2) {
+            long nodes = 0;
+            long begin = System.nanoTime();
+            for (GameState position : positions) {
+                ParallelSearch search = new ParallelSearch(new TranspositionTable(16), threads);
+                search.search(position, DEPTH, 0);
+                assertTrue(search.getCompletedDepth() >= 1);
+                nodes += search.getNodes();
+            }
+            long ms = (System.nanoTime() - begin) / 1000000;
+            if (threads == 1) {
+                single = Math.max(ms, 1);
+            }
+            System.out.println(threads + " thread(s) on " + cores + " core(s): depth " + DEPTH + " in " + ms + " ms, "
+                    + nodes + " nodes, speedup " + String.format("%.2f", (double) single / Math.max(ms, 1)));
+        }
+    }
+
+    @Test
+    public void helpersDoNotChangeAForcedWin() {
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(1), 4);
+        int m = search.search(new GameState(BOARD, x, o, Player.X, 7), 10, 0);
+        long[] board = {x, o};
+        assertEquals(Player.X, GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board));
+        assertTrue(search.getScore() > Search.WIN - 10);
+    }
+
+    private static GameState[] randomPositions(Random random, int count) {
+        GameState[] positions = new GameState[count];
+        int found = 0;
+        while (found < count) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            int plies = 4 + random.nextInt(8);
+            for (int i = 0; i < plies; i++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board);
+                player = GameEngine.otherPlayer(player);
+            }
+            if (BOARD.winner(board[0], board[1]) == Player.BLANK) {
+                positions[found++] = new GameState(BOARD, board[0], board[1], player, plies);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,63 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class PatternEvaluatorTest {
+
+    @Test
+    public void defaultWeightsMatchEvaluateGrid() {
+        Random random = new Random(18);
+        for (int dim = Bitboard.MIN_DIM; dim <= Bitboard.MAX_DIM; dim++) {
+            for (int k = Bitboard.MIN_DIM; k <= dim; k++) {
+                Bitboard geometry = Bitboard.of(dim, k);
+                PatternEvaluator evaluator = new PatternEvaluator(geometry, PatternEvaluator.DEFAULT_WEIGHTS);
+                for (int i = 0; i < 2000; i++) {
+                    long x = random.nextLong() & geometry.getBoardMask();
+                    long o = random.nextLong() & geometry.getBoardMask() & ~x;
+                    long[] board = {x, o};
+                    for (Player p : new Player[] {Player.X, Player.O}) {
+                        assertEquals(LoopEvaluator.evaluateGrid(geometry, board, p), evaluator.evaluate(x, o, p));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void uniformWeightsAreRecognised() {
+        Bitboard board = Bitboard.STANDARD;
+        assertEquals(1, new PatternEvaluator(board, PatternEvaluator.DEFAULT_WEIGHTS).getUniformWeight());
+        assertEquals(3, new PatternEvaluator(board, new int[] {5, 3}).getUniformWeight());
+        assertEquals(0, new PatternEvaluator(board, new int[] {0, 1, 3, 9, 27}).getUniformWeight());
+        //a full line is never open, so what it would be worth does not matter
+        assertEquals(2, new PatternEvaluator(board, new int[] {0, 2, 2, 2, 2, 100}).getUniformWeight());
+    }
+
+    @Test
+    public void weightsAreReadFromAStream() throws IOException {
+        String text = "# a comment\n0 1 3   # another\n\n9 27\n";
+        int[] weights = PatternEvaluator.readWeights(new ByteArrayInputStream(text.getBytes("UTF-8")));
+        assertArrayEquals(new int[] {0, 1, 3, 9, 27}, weights);
+
+        Bitboard board = Bitboard.STANDARD;
+        PatternEvaluator evaluator = new PatternEvaluator(board, weights);
+        //three X tokens on row A, one O token on row B
+        long x = board.bit(0, 0) | board.bit(0, 1) | board.bit(0, 2);
+        long o = board.bit(1, 4);
+        int rowA = board.getDim();
+        assertEquals(9, evaluator.lineScore(rowA, x, o));
+        assertEquals(-1, evaluator.lineScore(rowA + 1, x, o));
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyWeightFileIsAnError() throws IOException {
+        PatternEvaluator.readWeights(new ByteArrayInputStream("# nothing here\n".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,156 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ProofNumberSolverTest {
+
+    private static final ProofNumberSolver.Result[] RESULTS = ProofNumberSolver.Result.values();
+
+    @Test
+    public void agreesWithRetrogradeAnalysisOnTheSmallBoard() {
+        Bitboard geometry = Bitboard.of(3, 3);
+        byte[][] exact = retrograde(geometry);
+        ProofNumberSolver solver = new ProofNumberSolver(4, 64);
+        Random random = new Random(24);
+        int checked = 0;
+        while (checked < 300) {
+            long x = 0;
+            long o = 0;
+            for (int cell = 0; cell < 9; cell++) {
+                int r = random.nextInt(3);
+                x |= r == 1 ? 1L << cell : 0;
+                o |= r == 2 ? 1L << cell : 0;
+            }
+            Player toMove = random.nextBoolean() ? Player.X : Player.O;
+            if (geometry.winner(x, o) != Player.BLANK) {
+                continue;
+            }
+            ProofNumberSolver.Result result = solver.solve(new GameState(geometry, x, o, toMove, 0), 1000000);
+            assertEquals(RESULTS[exact[toMove.ordinal()][index(geometry, x, o)]], result);
+            if (result == ProofNumberSolver.Result.WIN) {
+                //the winning move leaves the opponent lost, or wins at once
+                long[] board = {x, o};
+                Player winner = GameEngine.doOneMove(geometry, geometry.moveChar(solver.getBestMove()), toMove, board);
+                assertTrue(winner == toMove
+                        || exact[1 - toMove.ordinal()][index(geometry, board[0], board[1])] == ProofNumberSolver.Result.LOSS.ordinal());
+            }
+            checked++;
+        }
+    }
+
+    @Test
+    public void solvesTheEmptyBoardsThatAreSmallEnough() {
+        ProofNumberSolver solver = new ProofNumberSolver();
+        assertEquals(ProofNumberSolver.Result.DRAW, solver.solve(new GameEngine(Bitboard.of(3, 3)).getState(), 1000000));
+        assertEquals(ProofNumberSolver.Result.WIN, solver.solve(new GameEngine(Bitboard.of(4, 3)).getState(), 1000000));
+        //too big to decide in a few thousand nodes
+        assertEquals(ProofNumberSolver.Result.UNKNOWN, solver.solve(new GameEngine().getState(), 5000));
+    }
+
+    @Test
+    public void provesEveryWinTheThreatSearchFinds() {
+        Random random = new Random(25);
+        ThreatSearch threats = new ThreatSearch();
+        ProofNumberSolver solver = new ProofNumberSolver();
+        int wins = 0;
+        for (int game = 0; game < 200; game++) {
+            GameEngine engine = new GameEngine();
+            for (int ply = 0; ply < 30 && engine.getState().getWinner() == Player.BLANK; ply++) {
+                GameState state = engine.getState();
+                if (threats.findForcedWin(state, 2, ThreatSearch.DEFAULT_NODE_LIMIT) >= 0) {
+                    assertEquals(ProofNumberSolver.Result.WIN, solver.solve(state, 1000000));
+                    wins++;
+                    break;
+                }
+                engine.submitMove(Bitboard.STANDARD.moveChar(random.nextInt(Bitboard.STANDARD.getMoves())));
+            }
+        }
+        assertTrue(wins > 0);
+    }
+
+    @Test
+    public void garbageCollectionKeepsTheProofWithinTheCap() {
+        GameState start = new GameEngine(Bitboard.of(4, 4)).getState();
+        ProofNumberSolver roomy = new ProofNumberSolver();
+        ProofNumberSolver cramped = new ProofNumberSolver(4, ProofNumberSolver.DEFAULT_MAX_PLIES);
+        long time = System.nanoTime();
+        assertEquals(ProofNumberSolver.Result.WIN, roomy.solve(start, 5000000));
+        System.out.printf("4x4: %d nodes in %d ms with %d entries%n", roomy.getNodes(),
+                (System.nanoTime() - time) / 1000000, roomy.getCapacity());
+        time = System.nanoTime();
+        assertEquals(ProofNumberSolver.Result.WIN, cramped.solve(start, 5000000));
+        System.out.printf("4x4: %d nodes in %d ms with %d entries and %d collections%n", cramped.getNodes(),
+                (System.nanoTime() - time) / 1000000, cramped.getCapacity(), cramped.getCollections());
+        assertTrue(cramped.getCollections() > 0);
+    }
+
+    private static int index(Bitboard geometry, long x, long o) {
+        int index = 0;
+        for (int cell = geometry.getDim() * geometry.getDim() - 1; cell >= 0; cell--) {
+            index = index * 3 + (int) (x >>> cell & 1) + 2 * (int) (o >>> cell & 1);
+        }
+        return index;
+    }
+
+    /**
+     * Solves every position of a small board exactly, by repeating the minimax
+     * rule over the whole state space until nothing changes. Positions that are
+     * never settled are draws.
+     * @return The result for the player to move, by player ordinal and board index.
+     */
+    private static byte[][] retrograde(Bitboard geometry) {
+        int cells = geometry.getDim() * geometry.getDim();
+        int states = 1;
+        for (int i = 0; i < cells; i++) {
+            states *= 3;
+        }
+        long[] xs = new long[states];
+        long[] os = new long[states];
+        for (int s = 0; s < states; s++) {
+            for (int cell = 0, rest = s; cell < cells; cell++, rest /= 3) {
+                xs[s] |= rest % 3 == 1 ? 1L << cell : 0;
+                os[s] |= rest % 3 == 2 ? 1L << cell : 0;
+            }
+        }
+        byte draw = (byte) ProofNumberSolver.Result.DRAW.ordinal();
+        byte win = (byte) ProofNumberSolver.Result.WIN.ordinal();
+        byte loss = (byte) ProofNumberSolver.Result.LOSS.ordinal();
+        byte[][] value = new byte[2][states];
+        for (byte[] v : value) {
+            Arrays.fill(v, draw);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < 2; p++) {
+                Player mover = p == 0 ? Player.X : Player.O;
+                for (int s = 0; s < states; s++) {
+                    if (value[p][s] != draw || geometry.winner(xs[s], os[s]) != Player.BLANK) {
+                        continue;
+                    }
+                    boolean allLose = true;
+                    boolean anyWin = false;
+                    for (int m = 0; m < geometry.getMoves() && !anyWin; m++) {
+                        long[] board = {xs[s], os[s]};
+                        Player winner = GameEngine.doOneMove(geometry, geometry.moveChar(m), mover, board);
+                        byte next = winner == Player.BLANK ? value[1 - p][index(geometry, board[0], board[1])]
+                                : winner == mover ? loss : winner == Player.TIE ? draw : win;
+                        anyWin = next == loss;
+                        allLose &= next == win;
+                    }
+                    if (anyWin || allLose) {
+                        value[p][s] = anyWin ? win : loss;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+}
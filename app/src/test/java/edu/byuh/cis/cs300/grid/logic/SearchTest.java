@@ -0,0 +1,169 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SearchTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void takesAnImmediateWin() {
+        //X has four in row A and only needs the last cell
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        Search search = new Search();
+        GameState state = new GameState(BOARD, x, o, Player.X, 7);
+        int m = search.search(state, 4);
+        long[] board = {x, o};
+        assertEquals(Player.X, GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board));
+        assertEquals(Search.WIN - 1, search.getScore());
+    }
+
+    @Test
+    public void blocksTheOpponentsWin() {
+        //O threatens to fill column 1, X must use its move on that column
+        long o = BOARD.line(BOARD.moveIndex('1')) & ~BOARD.bit(0, 0);
+        long x = BOARD.bit(1, 1) | BOARD.bit(2, 2) | BOARD.bit(4, 3);
+        GameState state = new GameState(BOARD, x, o, Player.X, 7);
+        int m = new Search().search(state, 2);
+        long[] board = {x, o};
+        GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board);
+        MoveList replies = new MoveList();
+        for (int i = 0; i < replies.generate(BOARD, board[0], board[1], Player.O); i++) {
+            assertEquals(Player.BLANK, BOARD.winner(replies.x(i), replies.o(i)));
+        }
+    }
+
+    @Test
+    public void pruningDoesNotChangeTheScore() {
+        Random random = new Random(11);
+        Search search = new Search();
+        search.setQuiescence(false);
+        for (int game = 0; game < 50; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            int plies = random.nextInt(12);
+            for (int i = 0; i < plies; i++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board);
+                player = GameEngine.otherPlayer(player);
+            }
+            if (BOARD.winner(board[0], board[1]) != Player.BLANK) {
+                continue;
+            }
+            search.search(new GameState(BOARD, board[0], board[1], player, plies), 3);
+            assertEquals(minimax(board, player, 3, 0), search.getScore());
+        }
+    }
+
+    @Test
+    public void reportsSpeedAtEachDepth() {
+        Search search = new Search();
+        GameState start = new GameState(BOARD, 0, 0, Player.X, 0);
+        for (int depth = 1; depth <= 7; depth++) {
+            long begin = System.nanoTime();
+            search.search(start, depth);
+            long ms = (System.nanoTime() - begin) / 1000000;
+            System.out.println("Depth " + depth + ": " + search.getNodes() + " nodes in " + ms + " ms");
+        }
+    }
+
+    @Test
+    public void stopsWhenTheTimeBudgetRunsOut() {
+        Search search = new Search(new TranspositionTable(1));
+        GameState start = new GameState(Bitboard.of(8, 5), 0, 0, Player.X, 0);
+        long begin = System.currentTimeMillis();
+        search.search(start, 64, 100);
+        long elapsed = System.currentTimeMillis() - begin;
+        System.out.println("Reached depth " + search.getCompletedDepth() + " in " + elapsed + " ms");
+        assertTrue(elapsed < 300);
+        assertTrue(search.getCompletedDepth() >= 1 && search.getCompletedDepth() < 64);
+    }
+
+    @Test
+    public void stoppedBeforeAnyDepthStillTakesTheWin() {
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        Search search = new Search();
+        search.stop();
+        //starting at depth 8, the stop hits before the first iteration is done
+        int m = search.search(new GameState(BOARD, x, o, Player.X, 7), 8, 8, 0);
+        assertEquals(0, search.getCompletedDepth());
+        long[] board = {x, o};
+        assertEquals(Player.X, GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board));
+    }
+
+    @Test
+    public void stopsDeepeningOnceAWinIsForced() {
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        Search search = new Search();
+        search.search(new GameState(BOARD, x, o, Player.X, 7), 64, 0);
+        assertEquals(1, search.getCompletedDepth());
+        assertEquals(Search.WIN - 1, search.getScore());
+    }
+
+    @Test
+    public void moveOrderingSearchesFewerNodes() {
+        Random random = new Random(16);
+        Search ordered = new Search(new TranspositionTable(4));
+        Search unordered = new Search(new TranspositionTable(4));
+        unordered.setMoveOrdering(false);
+        long orderedNodes = 0;
+        long unorderedNodes = 0;
+        long orderedTime = 0;
+        long unorderedTime = 0;
+        for (int game = 0; game < 20; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            int plies = random.nextInt(12);
+            for (int i = 0; i < plies; i++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board);
+                player = GameEngine.otherPlayer(player);
+            }
+            if (BOARD.winner(board[0], board[1]) != Player.BLANK) {
+                continue;
+            }
+            GameState state = new GameState(BOARD, board[0], board[1], player, plies);
+            ordered.getTable().clear();
+            unordered.getTable().clear();
+            long begin = System.nanoTime();
+            ordered.search(state, 7);
+            orderedTime += System.nanoTime() - begin;
+            begin = System.nanoTime();
+            unordered.search(state, 7);
+            unorderedTime += System.nanoTime() - begin;
+            orderedNodes += ordered.getNodes();
+            unorderedNodes += unordered.getNodes();
+        }
+        System.out.println("Depth 7: " + unorderedNodes + " nodes (" + unorderedTime / 1000000 + " ms) unordered, "
+                + orderedNodes + " nodes (" + orderedTime / 1000000 + " ms) ordered");
+        assertTrue(orderedNodes < unorderedNodes);
+    }
+
+    private static int minimax(long[] board, Player player, int depth, int ply) {
+        if (depth == 0) {
+            return LoopEvaluator.evaluateGrid(BOARD, board, player);
+        }
+        MoveList list = new MoveList();
+        int best = -Search.WIN - 1;
+        for (int i = 0; i < list.generate(BOARD, board[0], board[1], player); i++) {
+            long[] next = {list.x(i), list.o(i)};
+            Player winner = BOARD.winner(next[0], next[1], list.dirtyLines(i));
+            int score;
+            if (winner == Player.BLANK) {
+                score = -minimax(next, GameEngine.otherPlayer(player), depth - 1, ply + 1);
+            } else if (winner == Player.TIE) {
+                score = 0;
+            } else {
+                score = winner == player ? Search.WIN - ply - 1 : -(Search.WIN - ply - 1);
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+/**
+ * Solves a position from the command line. The position is given as the moves
+ * that lead to it from the empty board, for example "C3B".
+ *
+ * java edu.byuh.cis.cs300.grid.logic.SolvePosition
+ *     moves [dim [winLength [nodeLimit [megabytes]]]]
+ */
+public class SolvePosition {
+
+    public static void main(String[] args) {
+        String moves = args.length > 0 ? args[0] : "";
+        int dim = args.length > 1 ? Integer.parseInt(args[1]) : Bitboard.STANDARD.getDim();
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : dim;
+        long nodeLimit = args.length > 3 ? Long.parseLong(args[3]) : 10000000;
+        int megabytes = args.length > 4 ? Integer.parseInt(args[4]) : 256;
+
+        Bitboard geometry = Bitboard.of(dim, winLength);
+        GameEngine engine = new GameEngine(geometry);
+        for (char move : moves.toCharArray()) {
+            engine.submitMove(move);
+        }
+        ProofNumberSolver solver = new ProofNumberSolver(megabytes, ProofNumberSolver.DEFAULT_MAX_PLIES);
+        long start = System.currentTimeMillis();
+        ProofNumberSolver.Result result = solver.solve(engine.getState(), nodeLimit);
+        System.out.printf("%s to move: %s", engine.getCurrentPlayer(), result);
+        if (result == ProofNumberSolver.Result.WIN) {
+            System.out.printf(" with %c", geometry.moveChar(solver.getBestMove()));
+        }
+        System.out.printf("%n%d nodes, %d collections, %d ms%n", solver.getNodes(), solver.getCollections(),
+                System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,62 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Plays random games side by side on a board and on its transpose, and checks
+ * that they stay mirror images of each other with the same outcome and the same
+ * canonical hash.
+ */
+public class SymmetryTest {
+
+    @Test
+    public void transposedGamesStayEquivalent() {
+        Random random = new Random(10);
+        for (int dim = Bitboard.MIN_DIM; dim <= Bitboard.MAX_DIM; dim++) {
+            for (int k = Bitboard.MIN_DIM; k <= dim; k++) {
+                Bitboard geometry = Bitboard.of(dim, k);
+                for (int game = 0; game < 100; game++) {
+                    GameEngine engine = new GameEngine(geometry);
+                    GameEngine mirror = new GameEngine(geometry);
+                    Player result = Player.BLANK;
+                    while (result == Player.BLANK && engine.getMoveCount() < 60) {
+                        int m = random.nextInt(geometry.getMoves());
+                        result = engine.makeMove(geometry.moveChar(m));
+                        assertEquals(result, mirror.makeMove(geometry.moveChar(geometry.transposeMove(m))));
+                        long x = engine.getTokens(Player.X);
+                        long o = engine.getTokens(Player.O);
+                        assertEquals(geometry.transpose(x), mirror.getTokens(Player.X));
+                        assertEquals(geometry.transpose(o), mirror.getTokens(Player.O));
+                        assertEquals(x, geometry.transpose(geometry.transpose(x)));
+                        assertEquals(engine.getCanonicalHash(), mirror.getCanonicalHash());
+                        assertEquals(Symmetry.canonicalHash(geometry, x, o, engine.getCurrentPlayer()), engine.getCanonicalHash());
+                        if (engine.getHash() != mirror.getHash()) {
+                            assertNotEquals(engine.isCanonicalTransposed(), mirror.isCanonicalTransposed());
+                        }
+                    }
+                    while (engine.getMoveCount() > 0) {
+                        engine.unmakeMove();
+                        mirror.unmakeMove();
+                        assertEquals(engine.getCanonicalHash(), mirror.getCanonicalHash());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void movesMapBackAndForth() {
+        Bitboard geometry = Bitboard.STANDARD;
+        assertEquals(geometry.moveIndex('A'), geometry.transposeMove(geometry.moveIndex('1')));
+        assertEquals(geometry.moveIndex('5'), geometry.transposeMove(geometry.moveIndex('E')));
+        for (int m = 0; m < geometry.getMoves(); m++) {
+            assertEquals(m, Symmetry.canonicalMove(geometry, Symmetry.canonicalMove(geometry, m, true), true));
+            assertEquals(m, Symmetry.canonicalMove(geometry, m, false));
+        }
+    }
+}
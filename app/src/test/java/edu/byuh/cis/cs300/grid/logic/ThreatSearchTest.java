@@ -0,0 +1,71 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ThreatSearchTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void findsAnImmediateWin() {
+        long x = BOARD.line(BOARD.moveIndex('A')) & ~BOARD.bit(0, 4);
+        long o = BOARD.bit(1, 0) | BOARD.bit(2, 0) | BOARD.bit(3, 1);
+        ThreatSearch threats = new ThreatSearch();
+        int m = threats.findForcedWin(new GameState(BOARD, x, o, Player.X, 7), 3, ThreatSearch.DEFAULT_NODE_LIMIT);
+        long[] board = {x, o};
+        assertEquals(Player.X, GameEngine.doOneMove(BOARD, BOARD.moveChar(m), Player.X, board));
+    }
+
+    @Test
+    public void givesUpAtTheDeadline() {
+        //find a crowded position that takes the threat search a while
+        Random random = new Random(13);
+        ThreatSearch threats = new ThreatSearch();
+        GameEngine engine = new GameEngine(Bitboard.of(8, 5));
+        while (threats.findForcedWin(engine.getState(), 8, 20000) >= 0 || threats.getNodes() < 10000) {
+            engine.clear();
+            for (int ply = 0; ply < 30 && engine.getState().getWinner() == Player.BLANK; ply++) {
+                engine.submitMove(engine.getGeometry().moveChar(random.nextInt(engine.getGeometry().getMoves())));
+            }
+        }
+        assertEquals(-1, threats.findForcedWin(engine.getState(), 8, 1000000, System.nanoTime()));
+        assertTrue(threats.getNodes() < 2048);
+    }
+
+    @Test
+    public void everyForcedWinIsConfirmedByAFullSearch() {
+        Random random = new Random(17);
+        ThreatSearch threats = new ThreatSearch();
+        Search full = new Search(new TranspositionTable(4));
+        full.setQuiescence(false);
+        int found = 0;
+        for (int game = 0; game < 400; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            int plies = 6 + random.nextInt(20);
+            for (int i = 0; i < plies; i++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board);
+                player = GameEngine.otherPlayer(player);
+            }
+            if (BOARD.winner(board[0], board[1]) != Player.BLANK) {
+                continue;
+            }
+            GameState state = new GameState(BOARD, board[0], board[1], player, plies);
+            int m = threats.findForcedWin(state, 2, ThreatSearch.DEFAULT_NODE_LIMIT);
+            if (m >= 0) {
+                found++;
+                //two threats and the winning move take at most five plies
+                full.getTable().clear();
+                full.search(state, 5);
+                assertTrue(full.getScore() > Search.WIN - 10);
+            }
+        }
+        System.out.println("Threat search found " + found + " forced wins");
+        assertTrue(found > 0);
+    }
+}
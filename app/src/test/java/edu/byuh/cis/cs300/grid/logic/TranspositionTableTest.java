@@ -0,0 +1,147 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class TranspositionTableTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+
+    @Test
+    public void storedEntriesReadBack() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(12345L, 7, TranspositionTable.UPPER, -Search.WIN + 3, 9);
+        table.store(67890L, 0, TranspositionTable.EXACT, 42, TranspositionTable.NO_MOVE);
+        long entry = table.probe(12345L);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(-Search.WIN + 3, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.move(entry));
+        entry = table.probe(67890L);
+        assertEquals(42, TranspositionTable.score(entry));
+        assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.move(entry));
+        assertEquals(0, table.probe(555L));
+        assertEquals(2.0 / 3, table.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void shallowBoundsDoNotReplaceADeepEntry() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(777L, 9, TranspositionTable.LOWER, 50, 3);
+        table.store(777L, 2, TranspositionTable.UPPER, -10, 4);
+        assertEquals(9, TranspositionTable.depth(table.probe(777L)));
+        assertEquals(3, TranspositionTable.move(table.probe(777L)));
+
+        //an exact result, or any result once the deep one is from an old search, does replace it
+        table.store(777L, 2, TranspositionTable.EXACT, 5, 4);
+        assertEquals(2, TranspositionTable.depth(table.probe(777L)));
+        table.store(888L, 9, TranspositionTable.LOWER, 50, 3);
+        table.newSearch();
+        table.store(888L, 1, TranspositionTable.UPPER, -10, 4);
+        assertEquals(1, TranspositionTable.depth(table.probe(888L)));
+    }
+
+    @Test
+    public void savedEntriesAreTheDeepestAndLoadBack() throws IOException {
+        TranspositionTable table = new TranspositionTable(1);
+        Random random = new Random(23);
+        long[] keys = new long[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            table.store(keys[i], i % 10, TranspositionTable.LOWER, i - 500, i % BOARD.getMoves());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        //depths 8 and 9 make 200 entries, and 50 of depth 7 fill the rest
+        assertEquals(250, table.save(bytes, 4, 250, 77));
+        assertEquals(16 + 250 * 16, bytes.size());
+
+        TranspositionTable loaded = new TranspositionTable(1);
+        assertEquals(250, loaded.load(new ByteArrayInputStream(bytes.toByteArray()), 77));
+        int depth7 = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long entry = loaded.probe(keys[i]);
+            if (i % 10 >= 8) {
+                assertEquals(i % 10, TranspositionTable.depth(entry));
+                assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+                assertEquals(i - 500, TranspositionTable.score(entry));
+                assertEquals(i % BOARD.getMoves(), TranspositionTable.move(entry));
+            } else if (i % 10 == 7) {
+                depth7 += entry != 0 ? 1 : 0;
+            } else {
+                assertEquals(0, entry);
+            }
+        }
+        assertEquals(50, depth7);
+
+        //without a cap, everything from the minimum depth up is saved
+        bytes.reset();
+        assertEquals(600, table.save(bytes, 4, Integer.MAX_VALUE, 77));
+    }
+
+    @Test(expected = IOException.class)
+    public void tablesSavedWithOtherSettingsAreRejected() throws IOException {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(1L, 9, TranspositionTable.EXACT, 0, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        table.save(bytes, 0, 10, 1);
+        new TranspositionTable(1).load(new ByteArrayInputStream(bytes.toByteArray()), 2);
+    }
+
+    @Test
+    public void deeperEntriesSurviveUntilTheNextSearch() {
+        TranspositionTable table = new TranspositionTable(1);
+        int capacity = table.getCapacity();
+        //five keys with the same home slot, for a bucket of four
+        for (int i = 0; i < 4; i++) {
+            table.store(i * (long) capacity, 10 + i, TranspositionTable.EXACT, i, 0);
+        }
+        table.store(4L * capacity, 5, TranspositionTable.EXACT, 4, 0);
+        assertEquals(0, table.probe(4L * capacity));
+        assertEquals(10, TranspositionTable.depth(table.probe(0)));
+
+        table.newSearch();
+        table.store(4L * capacity, 5, TranspositionTable.EXACT, 4, 0);
+        assertEquals(5, TranspositionTable.depth(table.probe(4L * capacity)));
+        //the shallowest of the old entries made room
+        assertEquals(0, table.probe(0));
+    }
+
+    @Test
+    public void tableFindsTheSameMovesWithFewerNodes() {
+        Random random = new Random(12);
+        Search plain = new Search();
+        Search cached = new Search(new TranspositionTable(4));
+        long plainNodes = 0;
+        long cachedNodes = 0;
+        for (int game = 0; game < 30; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            int plies = random.nextInt(12);
+            for (int i = 0; i < plies; i++) {
+                GameEngine.doOneMove(BOARD, BOARD.moveChar(random.nextInt(BOARD.getMoves())), player, board);
+                player = GameEngine.otherPlayer(player);
+            }
+            if (BOARD.winner(board[0], board[1]) != Player.BLANK) {
+                continue;
+            }
+            cached.getTable().clear();
+            GameState state = new GameState(BOARD, board[0], board[1], player, plies);
+            plain.search(state, 6);
+            cached.search(state, 6);
+            assertEquals(plain.getScore(), cached.getScore());
+            plainNodes += plain.getNodes();
+            cachedNodes += cached.getNodes();
+        }
+        System.out.println("Depth 6: " + plainNodes + " nodes without the table, " + cachedNodes + " with it");
+        TranspositionTable table = cached.getTable();
+        System.out.println("Hit rate " + table.getHitRate() + ", fill " + table.getFillRate());
+        assertTrue(cachedNodes < plainNodes);
+    }
+}
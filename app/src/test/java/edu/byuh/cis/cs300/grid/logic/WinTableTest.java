@@ -0,0 +1,117 @@
+package edu.byuh.cis.cs300.grid.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Checks the table-driven win detection against the original stream-based
+ * implementation of GameEngine.checkForWin on random positions.
+ */
+public class WinTableTest {
+
+    private static final Bitboard BOARD = Bitboard.STANDARD;
+    private static final int DIM = BOARD.getDim();
+
+    @Test
+    public void winnerMatchesStreamImplementation() {
+        Random random = new Random(300);
+        for (int n = 0; n < 100000; n++) {
+            long x = 0;
+            long o = 0;
+            Player[][] grid = new Player[DIM][DIM];
+            //fill a few random lines so that wins and ties actually show up
+            int forced = random.nextInt(4);
+            for (int f = 0; f < forced; f++) {
+                long line = BOARD.winLine(random.nextInt(BOARD.getLines()));
+                if (random.nextBoolean()) {
+                    x |= line;
+                    o &= ~line;
+                } else {
+                    o |= line;
+                    x &= ~line;
+                }
+            }
+            for (int i = 0; i < DIM; i++) {
+                for (int j = 0; j < DIM; j++) {
+                    long b = BOARD.bit(i, j);
+                    if (((x | o) & b) == 0) {
+                        int r = random.nextInt(3);
+                        if (r == 0) {
+                            x |= b;
+                        } else if (r == 1) {
+                            o |= b;
+                        }
+                    }
+                    grid[i][j] = (x & b) != 0 ? Player.X : (o & b) != 0 ? Player.O : Player.BLANK;
+                }
+            }
+            assertEquals("position " + n, streamCheckForWin(grid), BOARD.winner(x, o));
+        }
+    }
+
+    @Test
+    public void dirtyLinesMatchFullCheckDuringPlay() {
+        Random random = new Random(301);
+        for (int game = 0; game < 20000; game++) {
+            long[] board = new long[2];
+            Player player = Player.X;
+            Player result = Player.BLANK;
+            while (result == Player.BLANK) {
+                char move = BOARD.moveChar(random.nextInt(BOARD.getMoves()));
+                result = GameEngine.doOneMove(BOARD, move, player, board);
+                assertEquals(BOARD.winner(board[0], board[1]), result);
+                player = GameEngine.otherPlayer(player);
+            }
+        }
+    }
+
+    @Test
+    public void emptyBoardHasNoWinner() {
+        assertEquals(Player.BLANK, BOARD.winner(0, 0));
+    }
+
+    @Test
+    public void twoCompletedRowsAreATie() {
+        assertEquals(Player.TIE, BOARD.winner(BOARD.winLine(DIM), BOARD.winLine(DIM + 1)));
+        assertEquals(Player.TIE, BOARD.winner(BOARD.winLine(DIM) | BOARD.winLine(DIM + 2), 0));
+    }
+
+    @Test
+    public void diagonalBeatsRowsAndColumns() {
+        long x = BOARD.winLine(2 * DIM);
+        long o = BOARD.winLine(DIM + 1) & ~x;
+        assertEquals(Player.X, BOARD.winner(x, o));
+    }
+
+    /**
+     * The stream-based win check that GameEngine used before the line table.
+     */
+    private static Player streamCheckForWin(Player[][] grid) {
+        Player winner = Player.BLANK;
+
+        winner = IntStream.range(0, DIM)
+                .mapToObj(i -> grid[i][0] != Player.BLANK && Arrays.stream(grid[i]).allMatch(p -> p == grid[i][0]) ? grid[i][0] : Player.BLANK)
+                .filter(p -> p != Player.BLANK)
+                .reduce(winner, (w, p) -> w == Player.BLANK ? p : Player.TIE);
+
+        winner = IntStream.range(0, DIM)
+                .mapToObj(i -> grid[0][i] != Player.BLANK && IntStream.range(0, DIM).allMatch(j -> grid[j][i] == grid[0][i]) ? grid[0][i] : Player.BLANK)
+                .filter(p -> p != Player.BLANK)
+                .reduce(winner, (w, p) -> w == Player.BLANK ? p : Player.TIE);
+
+        if (grid[0][0] != Player.BLANK && IntStream.range(0, 5).allMatch(i -> grid[i][i] == grid[0][0])) {
+            return grid[0][0];
+        }
+
+        if (grid[4][0] != Player.BLANK && IntStream.range(0, 5).allMatch(i -> grid[4 - i][i] == grid[4][0])) {
+            return grid[4][0];
+        }
+
+        return winner;
+    }
+}